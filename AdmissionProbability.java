@@ -0,0 +1,113 @@
+// AdmissionProbability.java: closed-form admission probabilities, for strategies
+// COS 445 SD1, Spring 2019
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A competitor's score at a university, aptitude + synergy, is the sum of
+// independent U[0, S) and U[0, W) draws, so the chance of beating competitors need
+// not be simulated: it follows from the CDF of that sum.
+public class AdmissionProbability {
+  // Points in each lookup table
+  static final int TABLE_SIZE = 1024;
+
+  private static final Map<Key, Table> tables = new ConcurrentHashMap<>();
+
+  private AdmissionProbability() {}
+
+  // P(a + s <= x) for a from U[0, S) and s from U[0, W): piecewise quadratic, linear
+  // in the middle. Either of S and W may be 0.
+  public static double sumCdf(double x, double S, double W) {
+    final double lower = Math.min(S, W);
+    final double upper = Math.max(S, W);
+    if (x <= 0) {
+      return (x == 0 && upper == 0) ? 1 : 0;
+    } else if (x >= lower + upper) {
+      return 1;
+    } else if (lower == 0) {
+      return x / upper;
+    } else if (x < lower) {
+      return (x * x) / (2 * lower * upper);
+    } else if (x < upper) {
+      return (2 * x - lower) / (2 * upper);
+    } else {
+      final double gap = lower + upper - x;
+      return 1 - (gap * gap) / (2 * lower * upper);
+    }
+  }
+
+  // P(the best of k competitors scores below x): the k-th power of sumCdf
+  public static double topOfPool(double x, double S, double W, int k) {
+    return Math.pow(sumCdf(x, S, W), k);
+  }
+
+  // topOfPool for one (S, W, k), built once and shared by every caller
+  public static Table table(double S, double W, int k) {
+    return tables.computeIfAbsent(new Key(S, W, k), key -> new Table(S, W, k));
+  }
+
+  // topOfPool(x, S, W, k) tabulated at TABLE_SIZE points of [0, S + W] and linearly
+  // interpolated between them
+  public static class Table {
+    private final double max;
+    private final double step;
+    private final double[] values = new double[TABLE_SIZE];
+
+    Table(double S, double W, int k) {
+      max = S + W;
+      step = max / (TABLE_SIZE - 1);
+      for (int i = 0; i < TABLE_SIZE; ++i) {
+        values[i] = AdmissionProbability.topOfPool(i * step, S, W, k);
+      }
+    }
+
+    public double topOfPool(double x) {
+      if (max == 0) {
+        return x >= 0 ? 1 : 0;
+      } else if (x <= 0) {
+        return values[0];
+      } else if (x >= max) {
+        return 1;
+      }
+      final double pos = x / step;
+      final int i = Math.min((int) pos, TABLE_SIZE - 2);
+      final double frac = pos - i;
+      return values[i] + frac * (values[i + 1] - values[i]);
+    }
+
+    // topOfPool of each of xs
+    public double[] topOfPool(double[] xs) {
+      final double[] ret = new double[xs.length];
+      for (int i = 0; i < xs.length; ++i) {
+        ret[i] = topOfPool(xs[i]);
+      }
+      return ret;
+    }
+  }
+
+  private static final class Key {
+    final double S;
+    final double W;
+    final int k;
+
+    Key(double S, double W, int k) {
+      this.S = S;
+      this.W = W;
+      this.k = k;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Double.compare(S, other.S) == 0 && Double.compare(W, other.W) == 0 && k == other.k;
+    }
+
+    @Override
+    public int hashCode() {
+      return (Double.hashCode(S) * 31 + Double.hashCode(W)) * 31 + k;
+    }
+  }
+}
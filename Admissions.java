@@ -6,41 +6,137 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
-import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
 public class Admissions extends Tournament<Student, AdmissionsConfig> {
   public static final int numApplications = 10;
+  // Scalar or SIMD loops for trial generation and scoring; see TrialKernels.load()
+  static final TrialKernels kernels = TrialKernels.load();
+  // With -Dadmissions.synergies=hashed, synergies are computed on demand from a
+  // per-trial seed instead of drawn into an N x N matrix, so a trial needs
+  // O(N + applications) memory. Both modes draw from the same distribution.
+  static final boolean hashedSynergies =
+      "hashed".equals(System.getProperty("admissions.synergies", "matrix"));
+  // When set, every trial adds its phase times and matching counters to it
+  static TrialReport report;
 
   Admissions(List<String> studentNames) {
     super(Student.class, studentNames);
+    // Each default getApplications calls the other, so a strategy that overrides
+    // neither would compile and then overflow the stack on every call
+    for (Class<? extends Student> clazz : strategies) {
+      if (!takesArrays.get(clazz) && !takesLists.get(clazz)) {
+        throw new IllegalArgumentException(clazz.getSimpleName()
+            + ": implements neither version of Student.getApplications");
+      }
+    }
   }
 
-  private static class StudentPair implements Comparable<StudentPair> {
-    public StudentPair(int i, double q) {
-      index = i;
-      quality = q;
+  // Whether a strategy overrides the List version of getApplications
+  private static final ClassValue<Boolean> takesLists = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> clazz) {
+      try {
+        return clazz.getMethod("getApplications", int.class, double.class, double.class,
+            double.class, double.class, List.class, List.class).getDeclaringClass() != Student.class;
+      } catch (NoSuchMethodException nsme) {
+        throw new RuntimeException(nsme);
+      }
+    }
+  };
+
+  // Whether a strategy overrides the double[] version of getApplications
+  private static final ClassValue<Boolean> takesArrays = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> clazz) {
+      try {
+        return clazz.getMethod("getApplications", int.class, double.class, double.class,
+            double.class, double.class, double[].class, double[].class).getDeclaringClass() != Student.class;
+      } catch (NoSuchMethodException nsme) {
+        throw new RuntimeException(nsme);
+      }
+    }
+  };
+
+  // Whether a strategy overrides getBatchApplications
+  private static final ClassValue<Boolean> takesBatches = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> clazz) {
+      try {
+        return clazz.getMethod("getBatchApplications", int.class, double.class, double.class,
+            double.class, double[].class, double[].class, double[][].class).getDeclaringClass() != Student.class;
+      } catch (NoSuchMethodException nsme) {
+        throw new RuntimeException(nsme);
+      }
     }
+  };
 
-    public int getIndex() {
-      return index;
+  // Strategies that take arrays get the arrays as they are, so the caller hands over
+  // arrays the trial does not read (see synergiesFor); the rest get read-only list
+  // views of them, so nothing is boxed up front.
+  static int[] getApplications(Student student, int N, double S, double T, double W,
+      double aptitude, double[] schools, double[] synergies) {
+    if (takesArrays.get(student.getClass())) {
+      return student.getApplications(N, S, T, W, aptitude, schools, synergies);
     }
+    return student.getApplications(N, S, T, W, aptitude,
+        new ReadOnlyDoubleList(schools), new ReadOnlyDoubleList(synergies));
+  }
 
-    private int index;
-    private double quality;
+  // stu's synergies for student's call: a row of its own for a strategy that takes
+  // arrays, or the trial's row, only ever seen through a read-only list, otherwise
+  private static double[] synergiesFor(Student student, Synergies synergies, int stu) {
+    return takesArrays.get(student.getClass())
+        ? synergies.copyOfRow(stu) : synergies.row(stu, null);
+  }
 
-    public int compareTo(StudentPair n) { // sort by quality, then index
-      int ret = Double.compare(quality, n.quality);
-      return (ret == 0) ? (Integer.compare(index, n.index)) : ret;
+  // The applications of the students in batch, each with synergies of its own; see
+  // Student.getBatchApplications
+  static int[][] getBatchApplications(Student student, int N, double S, double T, double W,
+      int[] batch, double[] aptitudes, double[] schools, Synergies synergies) {
+    final double[] batchAptitudes = new double[batch.length];
+    final double[][] batchSynergies = new double[batch.length][];
+    for (int i = 0; i < batch.length; ++i) {
+      batchAptitudes[i] = aptitudes[batch[i]];
+      batchSynergies[i] = synergies.copyOfRow(batch[i]);
     }
+    final int[][] apps = student.getBatchApplications(
+        N, S, T, W, batchAptitudes, schools, batchSynergies);
+    if (apps == null || apps.length != batch.length) {
+      throw new RuntimeException(student.getClass().getSimpleName()
+          + ": " + (apps == null ? "no" : apps.length) + " application lists for "
+          + batch.length + " students");
+    }
+    return apps;
   }
 
-  private static boolean checkLegalStuPrefs(int max, int[] prefs, String netid) {
+  // Validates each student of a batch on their own: one whose applications are
+  // illegal gets none, as if their own call had failed
+  private static int validateBatch(
+      int[] batch, int[][] stuPrefs, Callable<?>[] validate, Class<?> clazz) {
+    for (int t : batch) {
+      try {
+        validate[t].call();
+      } catch (Throwable e) { // as the invoker would report it
+        System.err.println(new RuntimeException(clazz.getSimpleName() + ": execution", e));
+        stuPrefs[t] = new int[] {};
+      }
+    }
+    return 0;
+  }
+
+  // Repeated applications are replaced by random ones drawn from repairSeed
+  private static boolean checkLegalStuPrefs(int max, int[] prefs, String netid, long repairSeed) {
     assert prefs.length == numApplications : netid + ": too many applications" + Arrays.toString(prefs);
     int j = 0, numRepeated = 0;
     while (j < numApplications) {
@@ -60,11 +156,12 @@ public class Admissions extends Tournament<Student, AdmissionsConfig> {
       }
       ++j;
     }
+    RandomGenerator rng = numRepeated > 0 ? new SplittableRandom(repairSeed) : null;
     while (numRepeated > 0) {
-      int newApp = rand.nextInt(max);
+      int newApp = rng.nextInt(max);
       for (j = 0; j < numApplications - numRepeated; ++j) {
         if (prefs[j] == newApp) {
-          newApp = rand.nextInt(max);
+          newApp = rng.nextInt(max);
           j = 0;
         }
       }
@@ -73,149 +170,415 @@ public class Admissions extends Tournament<Student, AdmissionsConfig> {
     return true;
   }
 
-  public double[] runTrial(List<Class<? extends Student>> strategies, AdmissionsConfig config) {
+  // The SplitMix64 finalizer. Seeds spaced by SplittableRandom's own gamma would give
+  // streams that are each other's shifted by a draw, so each student's repair seed is
+  // mixed instead.
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  public double[] runTrial(
+      List<Class<? extends Student>> strategies, AdmissionsConfig config, RandomGenerator rng) {
     // config might randomize each time
     final double S = config.getS();
     final double T = config.getT();
     final double W = config.getW();
+    final TrialReport report = Admissions.report;
+    // Phase times for report; validation is timed inside the strategy calls
+    final long[] nanos = new long[TrialReport.Phase.values().length];
+    long mark = System.nanoTime();
 
     // Uncomment this to suppress output.
     // PrintStream stdout = System.out;
     // System.setOut(new PrintStream(OutputStream.nullOutputStream()));
 
     List<Student> students = new ArrayList<Student>();
-    for (Class<? extends Student> studentClass : strategies) {
-      try {
-        students.add(studentClass.getDeclaredConstructor().newInstance());
-      } catch (ReflectiveOperationException roe) {
-        throw new RuntimeException(roe);
-      }
+    for (int slot = 0; slot < strategies.size(); ++slot) {
+      students.add(strategyFor(slot, strategies.get(slot)));
+    }
+    // Strategies are prepared once per object and N, S, T, W (see Student.prepare)
+    final List<Object> session = List.of(students.size(), S, T, W);
+    final boolean[] unprepared = new boolean[students.size()];
+    for (int slot = 0; slot < unprepared.length; ++slot) {
+      unprepared[slot] = unprepared(slot, session);
     }
+    // Set for the objects that prepare was called on in this trial; a batch only
+    // prepares the object it calls, and a sandboxed call prepares none of ours
+    final boolean[] preparedNow = new boolean[students.size()];
 
     // Initialize random variables
     double[] aptitudes = new double[students.size()];
     double[] schools = new double[students.size()];
-    double[][] synergies = new double[students.size()][students.size()];
+    final Synergies synergies;
 
-    for (int i = 0; i < students.size(); ++i) {
-      aptitudes[i] = rand.nextDouble() * S;
-      schools[i] = rand.nextDouble() * T;
-      for (int j = 0; j < students.size(); ++j) {
-        synergies[i][j] = rand.nextDouble() * W;
+    // Draw U[0, 1) values in the usual order, then scale them in bulk
+    if (hashedSynergies) {
+      final long synergySeed = rng.nextLong();
+      for (int i = 0; i < students.size(); ++i) {
+        aptitudes[i] = rng.nextDouble();
+        schools[i] = rng.nextDouble();
+      }
+      synergies = Synergies.hashed(students.size(), W, synergySeed);
+    } else {
+      double[][] matrix = new double[students.size()][students.size()];
+      for (int i = 0; i < students.size(); ++i) {
+        aptitudes[i] = rng.nextDouble();
+        schools[i] = rng.nextDouble();
+        for (int j = 0; j < students.size(); ++j) {
+          matrix[i][j] = rng.nextDouble();
+        }
+      }
+      for (double[] row : matrix) {
+        kernels.scale(row, W);
       }
+      synergies = Synergies.matrix(matrix);
     }
+    kernels.scale(aptitudes, S);
+    kernels.scale(schools, T);
     // Sort by decreasing order of school quality
     Arrays.sort(schools);
-    for (int i = 0; i < students.size(); ++i) {
-      schools[i] = T - schools[i];
-    }
+    kernels.subtractFrom(T, schools);
+    // One copy for every strategy of the trial, so none can change the schools the
+    // trial matches and scores with
+    final double[] strategySchools = schools.clone();
+
+    // Each student's repairs get their own stream, so they neither depend on other
+    // students' repairs nor touch rng from a strategy's thread
+    final long repairSeed = rng.nextLong();
+    mark = lap(nanos, TrialReport.Phase.GENERATION, mark);
 
     // Get each student's choices of schools to which to apply
     int[][] stuPrefs = new int[students.size()][];
 
+    // Each student's applications are checked, and repaired, on their own
+    final Callable<?>[] validate = new Callable<?>[stuPrefs.length];
+    for (int stu = 0; stu < stuPrefs.length; ++stu) {
+      final int s = stu;
+      final String netid = students.get(s).getClass().getSimpleName();
+      validate[s] = () -> {
+        final long validation = report == null ? 0 : System.nanoTime();
+        checkLegalStuPrefs(students.size(), stuPrefs[s], netid, mix64(repairSeed ^ s));
+        if (report != null) {
+          nanos[TrialReport.Phase.VALIDATION.ordinal()] += System.nanoTime() - validation;
+        }
+        return 0;
+      };
+    }
+
+    final boolean[] called = new boolean[stuPrefs.length];
     for (int stu = 0; stu < stuPrefs.length; ++stu) {
       // System.err.println(students.get(stu).getClass().getSimpleName());
-      // really gross boxing code
+      if (called[stu]) {
+        continue;
+      }
       final int s = stu;
+      final Class<? extends Student> clazz = students.get(s).getClass();
+      // A strategy that takes batches is called once, through the object in its first
+      // slot, for all of its students
+      final int[] batch = takesBatches.get(clazz)
+          ? IntStream.range(s, stuPrefs.length)
+              .filter(t -> students.get(t).getClass() == clazz).toArray()
+          : new int[] {s};
+      for (int t : batch) {
+        called[t] = true;
+      }
       try {
-        runWithTimeout(students.get(stu).getClass().getSimpleName(), () -> {
-          stuPrefs[s] = students.get(s).getApplications(students.size(), S, T, W, aptitudes[s],
-              Collections.unmodifiableList(DoubleStream.of(schools).boxed().collect(Collectors.toList())),
-              Collections.unmodifiableList(DoubleStream.of(synergies[s]).boxed().collect(Collectors.toList())));
-          checkLegalStuPrefs(students.size(), stuPrefs[s], students.get(s).getClass().getSimpleName());
-          return 0;
-        }, 10000);
+        if (batch.length > 1) {
+          invoker.invoke(clazz, () -> {
+            if (unprepared[s]) {
+              students.get(s).prepare(students.size(), S, T, W);
+              preparedNow[s] = true;
+            }
+            final int[][] apps = getBatchApplications(students.get(s), students.size(), S, T, W,
+                batch, aptitudes, strategySchools, synergies);
+            for (int i = 0; i < batch.length; ++i) {
+              stuPrefs[batch[i]] = apps[i];
+            }
+            return validateBatch(batch, stuPrefs, validate, clazz);
+          }, msTimeout -> {
+            // Sandboxed, each student gets their own call and their share of the
+            // batch's time
+            for (int t : batch) {
+              stuPrefs[t] = StudentSandbox.getApplications(clazz, students.size(), S, T, W,
+                  aptitudes[t], schools, synergies.row(t, null), msTimeout / batch.length);
+            }
+            return validateBatch(batch, stuPrefs, validate, clazz);
+          }, 10000 * batch.length);
+        } else {
+          invoker.invoke(clazz, () -> {
+            if (unprepared[s]) {
+              students.get(s).prepare(students.size(), S, T, W);
+              preparedNow[s] = true;
+            }
+            stuPrefs[s] = getApplications(students.get(s), students.size(), S, T, W, aptitudes[s],
+                strategySchools, synergiesFor(students.get(s), synergies, s));
+            return validate[s].call();
+          }, msTimeout -> {
+            // Offenders that run in a StudentSandbox (see StrategyInvoker)
+            stuPrefs[s] = StudentSandbox.getApplications(clazz, students.size(), S, T, W,
+                aptitudes[s], schools, synergies.row(s, null), msTimeout);
+            return validate[s].call();
+          }, 10000);
+        }
+        if (preparedNow[s]) {
+          prepared(s, session);
+        }
 
       } catch (Exception e) {
         System.err.println(e);
         // arbitrary application if code throws exception
-        stuPrefs[stu] = new int[] {};
+        for (int t : batch) {
+          stuPrefs[t] = new int[] {};
+        }
+        discardStrategy(stu);
       }
     }
+    mark = lap(nanos, TrialReport.Phase.STRATEGIES, mark);
+    nanos[TrialReport.Phase.STRATEGIES.ordinal()] -= nanos[TrialReport.Phase.VALIDATION.ordinal()];
 
     // Build university preference lists filtered by applications
-    ArrayList<TreeSet<StudentPair>> uniPrefTrees = new ArrayList<TreeSet<StudentPair>>();
-    for (int uni = 0; uni < schools.length; ++uni) {
-      uniPrefTrees.add(new TreeSet<StudentPair>());
-    }
-    for (int stu = 0; stu < stuPrefs.length; ++stu) {
-      for (int uni : stuPrefs[stu]) {
-        uniPrefTrees.get(uni).add(new StudentPair(stu, aptitudes[stu] + synergies[stu][uni]));
-      }
-    }
-    ArrayList<ArrayList<Integer>> uniPrefs = new ArrayList<ArrayList<Integer>>();
-    for (TreeSet<StudentPair> prefTree : uniPrefTrees) {
-      uniPrefs.add(prefTree.stream().map(StudentPair::getIndex).collect(Collectors.toCollection(ArrayList::new)));
-    }
-
-    // Initially everyone is not matched
-    int[] stuUnis = new int[students.size()];
-    int[] uniStus = new int[students.size()];
-    for (int i = 0; i < students.size(); ++i) {
-      stuUnis[i] = uniStus[i] = -1;
-    }
-    boolean flag = true;
+    UniversityPreferences uniPrefs =
+        UniversityPreferences.build(schools.length, stuPrefs, aptitudes, synergies);
+    mark = lap(nanos, TrialReport.Phase.PREFERENCES, mark);
 
     // Universities which are not matched keep proposing until they run out of
     // applicants
-    while (flag) {
-      flag = false;
-      for (int uni = 0; uni < schools.length; ++uni) {
-        if (uniStus[uni] == -1 && !uniPrefs.get(uni).isEmpty()) {
-          flag = true;
-          int stu = uniPrefs.get(uni).remove(uniPrefs.get(uni).size() - 1);
-          if (stuUnis[stu] == -1) {
-            stuUnis[stu] = uni;
-            uniStus[uni] = stu;
-          } else if (Arrays.asList(stuPrefs[stu]).indexOf(uni) < Arrays.asList(stuPrefs[stu]).indexOf(stuUnis[stu])) {
-            uniStus[stuUnis[stu]] = -1;
-            stuUnis[stu] = uni;
-            uniStus[uni] = stu;
-          }
-        }
-      }
-    }
+    final DeferredAcceptance.Counters counters =
+        report == null ? null : new DeferredAcceptance.Counters();
+    int[] stuUnis = DeferredAcceptance.match(uniPrefs, counters);
+    mark = lap(nanos, TrialReport.Phase.MATCHING, mark);
 
     // Students are rewarded with a point for every school they weakly prefer their
     // result to
     double[] ret = new double[students.size()];
+    double[] scratch = new double[students.size()];
     for (int stu = 0; stu < students.size(); ++stu) {
       if (stuUnis[stu] != -1) {
-        double res = schools[stuUnis[stu]] + synergies[stu][stuUnis[stu]];
-        for (int uni = 0; uni < schools.length; ++uni) {
-          if (schools[uni] + synergies[stu][uni] <= res) {
-            ++ret[stu];
-          }
-        }
+        double res = schools[stuUnis[stu]] + synergies.get(stu, stuUnis[stu]);
+        ret[stu] = kernels.countAtMost(schools, synergies.row(stu, scratch), res);
       }
     }
     for (int i = 0; i < ret.length; ++i) {
       ret[i] /= strategies.size();
     }
+    if (report != null) {
+      lap(nanos, TrialReport.Phase.SCORING, mark);
+      report.add(nanos, counters);
+    }
 
     // Uncomment this if you are suppressing output.
     // System.setOut(stdout);
     return ret;
   }
 
+  // Adds the time since mark to phase, and returns the new mark
+  private static long lap(long[] nanos, TrialReport.Phase phase, long mark) {
+    final long now = System.nanoTime();
+    nanos[phase.ordinal()] += now - mark;
+    return now;
+  }
+
+  // Usage: java Admissions students.txt [--trials=N] [--seed=SEED] [--threads=N]
+  //     [--ci=HALFWIDTH [--max-trials=N]]
+  //     [--checkpoint=FILE [--checkpoint-every=N] [--resume]]
+  //     [--S=VALUES] [--T=VALUES] [--W=VALUES] [--N=VALUES]
+  //     [--shards=K [--shard-timeout=SECONDS] [--shard-attempts=N]]
+  //     [--profile=FILE] [--report=FILE]
+  // With --ci, trials run until every score's 95% confidence interval is within
+  // +/- HALFWIDTH (or --max-trials have run) and the interval is reported as well.
+  // With --checkpoint, progress is saved to FILE every N trials (default 50), and
+  // --resume continues an interrupted run from FILE with the same final result.
+  // Giving any of --S, --T, --W or --N (room size) sweeps over every combination of
+  // the values, each a list "a,b,c" or a range "from:to:step"; see AdmissionsSweep.
+  // With --shards, the trials are split between K worker JVMs (see TrialShards),
+  // and a shard that crashes or runs past --shard-timeout is rerun on its own.
+  // With --profile, each strategy's call latencies, CPU time, allocation, timeouts
+  // and exceptions are summarized in FILE (see StrategyProfile). With --report, FILE
+  // gets the time trials spend in each phase and the matching's counters (see
+  // TrialReport).
   public static void main(String[] args) throws java.io.FileNotFoundException {
     assert args.length >= 1 : "Expected filename of strategies as first argument";
-    final int numTrials = 500;
+    int numTrials = 500;
+    long seed = new Random().nextLong();
+    int threads = Runtime.getRuntime().availableProcessors();
+    double targetHalfWidth = 0;
+    int maxTrials = 100000;
+    String checkpointFile = null;
+    int checkpointEvery = 50;
+    boolean resume = false;
+    String sweepS = null, sweepT = null, sweepW = null, sweepN = null;
+    int shards = 0;
+    long shardTimeout = 0;
+    int shardAttempts = 3;
+    String workerTrials = null;
+    String profileFile = null;
+    String reportFile = null;
+    for (int i = 1; i < args.length; ++i) {
+      if (args[i].startsWith("--trials=")) {
+        numTrials = Integer.parseInt(args[i].substring("--trials=".length()));
+      } else if (args[i].startsWith("--seed=")) {
+        seed = Long.parseLong(args[i].substring("--seed=".length()));
+      } else if (args[i].startsWith("--threads=")) {
+        threads = Integer.parseInt(args[i].substring("--threads=".length()));
+      } else if (args[i].startsWith("--ci=")) {
+        targetHalfWidth = Double.parseDouble(args[i].substring("--ci=".length()));
+      } else if (args[i].startsWith("--max-trials=")) {
+        maxTrials = Integer.parseInt(args[i].substring("--max-trials=".length()));
+      } else if (args[i].startsWith("--checkpoint=")) {
+        checkpointFile = args[i].substring("--checkpoint=".length());
+      } else if (args[i].startsWith("--checkpoint-every=")) {
+        checkpointEvery = Integer.parseInt(args[i].substring("--checkpoint-every=".length()));
+      } else if (args[i].equals("--resume")) {
+        resume = true;
+      } else if (args[i].startsWith("--S=")) {
+        sweepS = args[i].substring("--S=".length());
+      } else if (args[i].startsWith("--T=")) {
+        sweepT = args[i].substring("--T=".length());
+      } else if (args[i].startsWith("--W=")) {
+        sweepW = args[i].substring("--W=".length());
+      } else if (args[i].startsWith("--N=")) {
+        sweepN = args[i].substring("--N=".length());
+      } else if (args[i].startsWith("--shards=")) {
+        shards = Integer.parseInt(args[i].substring("--shards=".length()));
+      } else if (args[i].startsWith("--shard-timeout=")) {
+        shardTimeout = 1000 * Long.parseLong(args[i].substring("--shard-timeout=".length()));
+      } else if (args[i].startsWith("--shard-attempts=")) {
+        shardAttempts = Integer.parseInt(args[i].substring("--shard-attempts=".length()));
+      } else if (args[i].startsWith("--profile=")) {
+        profileFile = args[i].substring("--profile=".length());
+      } else if (args[i].startsWith("--report=")) {
+        reportFile = args[i].substring("--report=".length());
+      } else if (args[i].startsWith("--worker-trials=")) {
+        workerTrials = args[i].substring("--worker-trials=".length());
+      } else {
+        throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    if (resume && checkpointFile == null) {
+      throw new IllegalArgumentException("--resume needs --checkpoint=FILE to resume from");
+    }
+    if (checkpointFile != null && targetHalfWidth > 0) {
+      throw new IllegalArgumentException("--checkpoint does not support --ci runs");
+    }
+    if (shards > 0 && (checkpointFile != null || targetHalfWidth > 0)) {
+      throw new IllegalArgumentException("--shards does not support --checkpoint or --ci runs");
+    }
+    if (shards > 0 && (profileFile != null || reportFile != null)) {
+      throw new IllegalArgumentException("--shards does not support --profile or --report");
+    }
+    final boolean sweeping = sweepS != null || sweepT != null || sweepW != null || sweepN != null;
+    if (sweeping && (targetHalfWidth > 0 || checkpointFile != null || resume || shards > 0)) {
+      throw new IllegalArgumentException(
+          "--S, --T, --W and --N sweeps do not support --ci, --checkpoint, --resume or --shards");
+    }
+    final Checkpoint checkpoint = checkpointFile == null ? null
+        : new Checkpoint(Paths.get(checkpointFile), checkpointEvery, resume);
+    // A resumed run keeps the seed it was checkpointed with
+    final Long resumedSeed = checkpoint == null ? null : checkpoint.seed();
+    if (resumedSeed != null) {
+      seed = resumedSeed;
+    }
+    // Rerun with --seed to reproduce this tournament's trials
+    if (workerTrials == null) {
+      System.err.println("seed: " + seed);
+    }
     final AdmissionsConfig config = new AdmissionsConfig(100, 100, 10);
     final BufferedReader namesFile = new BufferedReader(new FileReader(args[0]));
     final List<String> strategyNames = namesFile.lines().map(s -> String.format("Student_%s", s))
         .collect(Collectors.toList());
     final int N = strategyNames.size();
-    assert N >= numApplications : "Must have at least 10 strategies in students.txt!";
-    // each strategy in the sample room with the sample strategies (not a component
-    // of the grade,
-    // just for overfitting comparisons)
-    final Admissions withStrategies = new Admissions(strategyNames);
-
-    double[] res = withStrategies.oneEachTrials(numTrials, config);
-    System.out.println("netID,score");
-    for (int i = 0; i != N; ++i) {
-      System.out.println(strategyNames.get(i).substring(8) + "," + Double.toString(res[i]));
+
+    final StrategyProfile profile = profileFile == null ? null : new StrategyProfile();
+    invoker.setProfile(profile);
+    // Simulations a strategy runs must then stay on its own thread
+    AdmissionsSimulator.runSerially(invoker.measuresThreadCpu());
+    report = reportFile == null ? null : new TrialReport();
+    try {
+      if (sweeping) {
+        AdmissionsSweep sweep = new AdmissionsSweep(strategyNames,
+            AdmissionsSweep.parseValues(sweepS == null ? "100" : sweepS),
+            AdmissionsSweep.parseValues(sweepT == null ? "100" : sweepT),
+            AdmissionsSweep.parseValues(sweepW == null ? "10" : sweepW),
+            AdmissionsSweep.parseSizes(sweepN == null ? Integer.toString(N) : sweepN));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+          sweep.run(numTrials, seed, pool, System.out);
+        } finally {
+          pool.shutdown();
+        }
+        return;
+      }
+
+      assert N >= numApplications : "Must have at least 10 strategies in students.txt!";
+
+      if (shards > 0) {
+        final List<String> workerArgs = Arrays.asList(args[0], "--seed=" + seed,
+            "--threads=" + Math.max(1, threads / shards));
+        double[] res = TrialShards.run(Admissions.class, workerArgs, numTrials, shards,
+            shardTimeout, shardAttempts);
+        System.out.println("netID,score");
+        for (int i = 0; i != N; ++i) {
+          System.out.println(strategyNames.get(i).substring(8) + "," + Double.toString(res[i] / numTrials));
+        }
+        return;
+      }
+      // each strategy in the sample room with the sample strategies (not a component
+      // of the grade,
+      // just for overfitting comparisons)
+      final Admissions withStrategies = new Admissions(strategyNames);
+
+      if (workerTrials != null) {
+        final String[] range = workerTrials.split(":");
+        double[] sums = new double[N];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+          withStrategies.addTrials(sums, withStrategies.strategies, config, seed,
+              Integer.parseInt(range[0]), Integer.parseInt(range[1]), pool);
+        } finally {
+          pool.shutdown();
+        }
+        TrialShards.printSums(sums, System.out);
+        return;
+      }
+
+      if (targetHalfWidth > 0) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        TrialStats stats;
+        try {
+          stats = withStrategies.adaptiveTrials(config, targetHalfWidth, maxTrials, seed, pool);
+        } finally {
+          pool.shutdown();
+        }
+        System.err.println("trials: " + stats.count());
+        double[] res = stats.means();
+        System.out.println("netID,score,ci95");
+        for (int i = 0; i != N; ++i) {
+          System.out.println(strategyNames.get(i).substring(8) + "," + Double.toString(res[i]) + ","
+              + Double.toString(stats.halfWidth(i)));
+        }
+        return;
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      double[] res;
+      try {
+        res = withStrategies.oneEachTrials(numTrials, config, seed, pool, checkpoint);
+      } finally {
+        pool.shutdown();
+      }
+      System.out.println("netID,score");
+      for (int i = 0; i != N; ++i) {
+        System.out.println(strategyNames.get(i).substring(8) + "," + Double.toString(res[i]));
+      }
+    } finally {
+      if (profile != null) {
+        profile.write(Paths.get(profileFile));
+      }
+      if (report != null) {
+        report.write(Paths.get(reportFile));
+      }
     }
   }
 }
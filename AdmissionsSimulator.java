@@ -0,0 +1,381 @@
+// AdmissionsSimulator.java: fast Monte Carlo simulations of admissions, for strategies
+// COS 445 SD1, Spring 2019
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// Estimates how a student would fare against random competitors, drawn from the
+// same distributions as the tournament's: aptitudes from U[0, S) and synergies from
+// U[0, W). Samples go into buffers that are kept between calls, so a strategy that
+// keeps its simulator (see Reusable) allocates next to nothing per call. A simulator
+// is not thread-safe; give each strategy object its own.
+//
+// Batch queries answer for every school from the same samples, instead of sampling
+// anew per school. With setParallelism, samples are split between worker simulators
+// on the common fork/join pool, except in tournaments that charge or measure only the
+// calling thread (see runSerially).
+public class AdmissionsSimulator {
+  // How a simulated competitor chooses where to apply: fills apps (of length
+  // Admissions.numApplications) with distinct schools, given the competitor's aptitude
+  // and their synergy with each school. scratch holds schools.length doubles that the
+  // policy may use as it likes; each simulator has its own.
+  public interface Policy {
+    void choose(
+        double aptitude, double[] schools, double[] synergies, int[] apps, double[] scratch);
+  }
+
+  // Applies to the schools with the highest quality + synergy, like Student_holist
+  public static final Policy HOLIST =
+      (aptitude, schools, synergies, apps, scratch) -> {
+        int size = 0;
+        for (int u = 0; u < schools.length; ++u) {
+          final double value = schools[u] + synergies[u];
+          if (size == apps.length) {
+            final int last = apps[size - 1];
+            if (!(value > schools[last] + synergies[last])) {
+              continue;
+            }
+          }
+          int i = (size < apps.length) ? size++ : size - 1;
+          while (i > 0 && value > schools[apps[i - 1]] + synergies[apps[i - 1]]) {
+            apps[i] = apps[i - 1];
+            --i;
+          }
+          apps[i] = u;
+        }
+      };
+
+  // Set by the tournament when a strategy call is charged for, or profiled by, the
+  // CPU time of its own thread only: sampling on other threads would escape both
+  private static volatile boolean serial;
+
+  private final SplittableRandom rng;
+  private int parallelism = 1;
+  // Simulators for parallel sampling, each with its own split of rng
+  private AdmissionsSimulator[] workers = new AdmissionsSimulator[0];
+
+  // Sampled rooms: competitor c has aptitudes[c], synergies[c] and applies to apps[c]
+  private double[] aptitudes = new double[0];
+  private double[][] synergies = new double[0][];
+  private int[][] apps = new int[0][];
+  private double[] scratch = new double[0];
+  // best[u] is the strongest competitor applying to u, by aptitude + synergy
+  private double[] best = new double[0];
+
+  // Matching: the applicants to u are entries start[u] .. start[u + 1] - 1, in
+  // increasing order of quality and then student, as in UniversityPreferences
+  private int[] start = new int[0];
+  private int[] cursor = new int[0];
+  private int[] entryStudent = new int[0];
+  private double[] entryQuality = new double[0];
+  private int[] entryRank = new int[0];
+  private int[] heldRank = new int[0];
+  private int[] stuUni = new int[0];
+  private int[] uniStu = new int[0];
+  private int[] next = new int[0];
+  private int[] worklist = new int[0];
+
+  public AdmissionsSimulator() {
+    this(new SplittableRandom());
+  }
+
+  public AdmissionsSimulator(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  private AdmissionsSimulator(SplittableRandom rng) {
+    this.rng = rng;
+  }
+
+  // Splits batch queries between this many simulators; 1 (the default) samples on
+  // the calling thread only, as every simulator does under runSerially. Results
+  // depend only on the seed and the parallelism used.
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+    if (workers.length != this.parallelism) {
+      workers = new AdmissionsSimulator[this.parallelism];
+      for (int i = 0; i < workers.length; ++i) {
+        workers[i] = new AdmissionsSimulator(rng.split());
+      }
+    }
+  }
+
+  // For each school u, the probability that scores[u] beats every competitor that
+  // applies to u, over rooms sampled rooms of competitors choosing with policy
+  public double[] topApplicant(
+      double[] schools,
+      double[] scores,
+      double S,
+      double W,
+      int competitors,
+      Policy policy,
+      int rooms) {
+    return topApplicant(schools, new double[][] {scores}, S, W, competitors, policy, rooms)[0];
+  }
+
+  // topApplicant for several students at once, all judged against the same sampled
+  // rooms: ret[i][u] is the probability for scores[i][u]
+  public double[][] topApplicant(
+      double[] schools,
+      double[][] scores,
+      double S,
+      double W,
+      int competitors,
+      Policy policy,
+      int rooms) {
+    final int N = schools.length;
+    final int[] wins =
+        sum(
+            rooms,
+            (sim, count) ->
+                sim.countTopApplicant(schools, scores, S, W, competitors, policy, count));
+    final double[][] ret = new double[scores.length][];
+    for (int i = 0; i < scores.length; ++i) {
+      ret[i] = fractions(Arrays.copyOfRange(wins, i * N, (i + 1) * N), N, rooms);
+    }
+    return ret;
+  }
+
+  // Where a student with aptitude and synergies who applies to myApps ends up, over
+  // rooms sampled rooms of competitors choosing with policy and university-proposing
+  // deferred acceptance: counts[u] rooms matched to u, counts[N] rooms unmatched.
+  // myApps must not repeat a school.
+  public int[] matchCounts(
+      double[] schools,
+      double aptitude,
+      double[] synergies,
+      int[] myApps,
+      double S,
+      double W,
+      int competitors,
+      Policy policy,
+      int rooms) {
+    return sum(
+        rooms,
+        (sim, count) ->
+            sim.countMatches(
+                schools, aptitude, synergies, myApps, S, W, competitors, policy, count));
+  }
+
+  // Keeps every simulator's sampling on the calling thread, whatever its parallelism
+  static void runSerially(boolean serial) {
+    AdmissionsSimulator.serial = serial;
+  }
+
+  private interface Batch {
+    int[] run(AdmissionsSimulator sim, int count);
+  }
+
+  // Runs total samples of batch, split between the workers if parallel, and adds up
+  // their counts
+  private int[] sum(int total, Batch batch) {
+    if (parallelism == 1 || serial) {
+      return batch.run(this, total);
+    }
+    final int[][] parts =
+        IntStream.range(0, parallelism)
+            .parallel()
+            .mapToObj(
+                i ->
+                    batch.run(
+                        workers[i],
+                        (int) ((long) total * (i + 1) / parallelism)
+                            - (int) ((long) total * i / parallelism)))
+            .toArray(int[][]::new);
+    final int[] ret = parts[0];
+    for (int i = 1; i < parts.length; ++i) {
+      for (int j = 0; j < ret.length; ++j) {
+        ret[j] += parts[i][j];
+      }
+    }
+    return ret;
+  }
+
+  private static double[] fractions(int[] counts, int length, int total) {
+    final double[] ret = new double[length];
+    for (int i = 0; i < length; ++i) {
+      ret[i] = (double) counts[i] / total;
+    }
+    return ret;
+  }
+
+  // Wins of scores[i][u] at wins[i * N + u]
+  private int[] countTopApplicant(
+      double[] schools,
+      double[][] scores,
+      double S,
+      double W,
+      int competitors,
+      Policy policy,
+      int rooms) {
+    final int N = schools.length;
+    final int[] wins = new int[scores.length * N];
+    if (best.length < N) {
+      best = new double[N];
+    }
+    for (int room = 0; room < rooms; ++room) {
+      sampleRoom(schools, S, W, competitors, policy);
+      Arrays.fill(best, 0, N, Double.NEGATIVE_INFINITY);
+      for (int c = 0; c < competitors; ++c) {
+        for (int u : apps[c]) {
+          best[u] = Math.max(best[u], aptitudes[c] + synergies[c][u]);
+        }
+      }
+      for (int i = 0; i < scores.length; ++i) {
+        final double[] row = scores[i];
+        for (int u = 0; u < N; ++u) {
+          if (row[u] > best[u]) {
+            ++wins[i * N + u];
+          }
+        }
+      }
+    }
+    return wins;
+  }
+
+  private int[] countMatches(
+      double[] schools,
+      double aptitude,
+      double[] mySynergies,
+      int[] myApps,
+      double S,
+      double W,
+      int competitors,
+      Policy policy,
+      int rooms) {
+    final int N = schools.length;
+    final int[] counts = new int[N + 1];
+    for (int room = 0; room < rooms; ++room) {
+      sampleRoom(schools, S, W, competitors, policy);
+      final int u = match(N, competitors, aptitude, mySynergies, myApps);
+      ++counts[u == -1 ? N : u];
+    }
+    return counts;
+  }
+
+  // Draws competitors into the room buffers and has them choose with policy
+  private void sampleRoom(double[] schools, double S, double W, int competitors, Policy policy) {
+    final int N = schools.length;
+    if (synergies.length < competitors || (competitors > 0 && synergies[0].length != N)) {
+      aptitudes = new double[competitors];
+      synergies = new double[competitors][N];
+      apps = new int[competitors][Admissions.numApplications];
+      scratch = new double[N];
+    }
+    for (int c = 0; c < competitors; ++c) {
+      aptitudes[c] = rng.nextDouble() * S;
+      final double[] row = synergies[c];
+      for (int u = 0; u < N; ++u) {
+        row[u] = rng.nextDouble() * W;
+      }
+      policy.choose(aptitudes[c], schools, row, apps[c], scratch);
+    }
+  }
+
+  // Matches the sampled competitors plus one more student (me) to the N universities;
+  // returns the university I end up at, or -1
+  private int match(int N, int competitors, double aptitude, double[] mySynergies, int[] myApps) {
+    final int me = competitors;
+    final int numStudents = competitors + 1;
+    final int numEntries = competitors * Admissions.numApplications + myApps.length;
+    if (start.length < N + 1) {
+      start = new int[N + 1];
+      cursor = new int[N];
+      uniStu = new int[N];
+      next = new int[N];
+      worklist = new int[N];
+    }
+    if (entryStudent.length < numEntries) {
+      entryStudent = new int[numEntries];
+      entryQuality = new double[numEntries];
+      entryRank = new int[numEntries];
+    }
+    if (heldRank.length < numStudents) {
+      heldRank = new int[numStudents];
+      stuUni = new int[numStudents];
+    }
+
+    // Bucket the applications by university
+    Arrays.fill(start, 0, N + 1, 0);
+    for (int c = 0; c < competitors; ++c) {
+      for (int u : apps[c]) {
+        ++start[u + 1];
+      }
+    }
+    for (int u : myApps) {
+      ++start[u + 1];
+    }
+    for (int u = 0; u < N; ++u) {
+      start[u + 1] += start[u];
+      cursor[u] = start[u];
+    }
+    for (int c = 0; c < competitors; ++c) {
+      for (int rank = 0; rank < apps[c].length; ++rank) {
+        final int u = apps[c][rank];
+        add(cursor[u]++, c, aptitudes[c] + synergies[c][u], rank);
+      }
+    }
+    for (int rank = 0; rank < myApps.length; ++rank) {
+      final int u = myApps[rank];
+      add(cursor[u]++, me, aptitude + mySynergies[u], rank);
+    }
+    // Segments hold about numApplications entries each, so insertion sort them
+    for (int u = 0; u < N; ++u) {
+      for (int e = start[u] + 1; e < start[u + 1]; ++e) {
+        final int stu = entryStudent[e];
+        final double quality = entryQuality[e];
+        final int rank = entryRank[e];
+        int f = e;
+        while (f > start[u]
+            && (entryQuality[f - 1] > quality
+                || (entryQuality[f - 1] == quality && entryStudent[f - 1] > stu))) {
+          add(f, entryStudent[f - 1], entryQuality[f - 1], entryRank[f - 1]);
+          --f;
+        }
+        add(f, stu, quality, rank);
+      }
+    }
+
+    // University-proposing deferred acceptance, as in DeferredAcceptance.match
+    Arrays.fill(heldRank, 0, numStudents, Integer.MAX_VALUE);
+    Arrays.fill(stuUni, 0, numStudents, -1);
+    Arrays.fill(uniStu, 0, N, -1);
+    int head = 0, size = 0;
+    for (int u = 0; u < N; ++u) {
+      next[u] = start[u + 1] - 1;
+      if (next[u] >= start[u]) {
+        worklist[size++] = u;
+      }
+    }
+    while (size > 0) {
+      final int u = worklist[head];
+      head = (head + 1) % N;
+      --size;
+      final int e = next[u]--;
+      final int stu = entryStudent[e];
+      if (entryRank[e] < heldRank[stu]) {
+        final int jilted = stuUni[stu];
+        if (jilted != -1) {
+          uniStu[jilted] = -1;
+          if (next[jilted] >= start[jilted]) {
+            worklist[(head + size++) % N] = jilted;
+          }
+        }
+        stuUni[stu] = u;
+        uniStu[u] = stu;
+        heldRank[stu] = entryRank[e];
+      }
+      if (uniStu[u] == -1 && next[u] >= start[u]) {
+        worklist[(head + size++) % N] = u;
+      }
+    }
+    return stuUni[me];
+  }
+
+  private void add(int e, int stu, double quality, int rank) {
+    entryStudent[e] = stu;
+    entryQuality[e] = quality;
+    entryRank[e] = rank;
+  }
+}
@@ -0,0 +1,121 @@
+// AdmissionsSweep.java: runs the tournament over a grid of S, T, W and room sizes
+// COS 445 SD1, Spring 2019
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class AdmissionsSweep {
+  // One grid point
+  static class Point {
+    final AdmissionsConfig config;
+    final int N;
+
+    Point(AdmissionsConfig config, int N) {
+      this.config = config;
+      this.N = N;
+    }
+  }
+
+  private final List<String> strategyNames;
+  private final List<Point> points = new ArrayList<>();
+  // One tournament per room size, shared by every config of that size, so strategy
+  // classes are loaded (and Reusable strategies kept) once.
+  private final Map<Integer, Admissions> rooms = new HashMap<>();
+
+  // Sweeps every combination of the given values. A room of size N holds the
+  // strategies of strategyNames repeated in order until there are N of them.
+  AdmissionsSweep(
+      List<String> strategyNames, double[] Ss, double[] Ts, double[] Ws, int[] Ns) {
+    this.strategyNames = strategyNames;
+    for (int N : Ns) {
+      assert N >= Admissions.numApplications : "Rooms need at least 10 strategies";
+      List<String> room = new ArrayList<>();
+      for (int i = 0; i < N; ++i) {
+        room.add(strategyNames.get(i % strategyNames.size()));
+      }
+      rooms.put(N, new Admissions(room));
+      for (double S : Ss) {
+        for (double T : Ts) {
+          for (double W : Ws) {
+            points.add(new Point(new AdmissionsConfig(S, T, W), N));
+          }
+        }
+      }
+    }
+  }
+
+  // Runs every grid point on pool, points and their trials alike, and writes one row
+  // per strategy and grid point: the strategy's mean score over its slots.
+  void run(int numTrials, long seed, ForkJoinPool pool, PrintStream out) {
+    List<double[]> results =
+        pool.submit(
+                () ->
+                    points.parallelStream()
+                        .map(p -> rooms.get(p.N).oneEachTrials(numTrials, p.config, seed, pool))
+                        .collect(Collectors.toList()))
+            .join();
+
+    out.println("S,T,W,N,netID,score");
+    for (int p = 0; p < points.size(); ++p) {
+      final Point point = points.get(p);
+      final double[] res = results.get(p);
+      Map<String, double[]> byName = new LinkedHashMap<>(); // {sum, count}
+      for (int i = 0; i < point.N; ++i) {
+        double[] acc =
+            byName.computeIfAbsent(
+                strategyNames.get(i % strategyNames.size()), k -> new double[2]);
+        acc[0] += res[i];
+        acc[1] += 1;
+      }
+      for (Map.Entry<String, double[]> entry : byName.entrySet()) {
+        out.println(
+            point.config.getS() + "," + point.config.getT() + "," + point.config.getW() + ","
+                + point.N + "," + entry.getKey().substring(8) + ","
+                + Double.toString(entry.getValue()[0] / entry.getValue()[1]));
+      }
+    }
+  }
+
+  // Parses "a,b,c" or an inclusive range "from:to:step", with step > 0 and to >= from
+  static double[] parseValues(String spec) {
+    if (spec.contains(":")) {
+      String[] parts = spec.split(":");
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("Expected from:to:step, got " + spec);
+      }
+      final double from = Double.parseDouble(parts[0]);
+      final double to = Double.parseDouble(parts[1]);
+      final double step = Double.parseDouble(parts[2]);
+      if (!(step > 0) || !(to >= from)) {
+        throw new IllegalArgumentException(spec + ": ranges need a positive step and to >= from");
+      }
+      final int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+      double[] ret = new double[count];
+      for (int i = 0; i < count; ++i) {
+        ret[i] = from + i * step;
+      }
+      return ret;
+    }
+    String[] parts = spec.split(",");
+    double[] ret = new double[parts.length];
+    for (int i = 0; i < parts.length; ++i) {
+      ret[i] = Double.parseDouble(parts[i]);
+    }
+    return ret;
+  }
+
+  static int[] parseSizes(String spec) {
+    double[] values = parseValues(spec);
+    int[] ret = new int[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      ret[i] = (int) values[i];
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,112 @@
+// Checkpoint.java: periodic saves of a long tournament run so it can be resumed
+// Shared code for all Strategy Design Assignments
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A seeded run is fully described by its master seed and how many trials of its
+// trial sequence are done, because trial k's random stream is always the k-th split
+// of the seed. So a checkpoint holds the seed, the completed trial count and the
+// partial per-strategy sums, written exactly (as hex doubles) so that a resumed run
+// finishes with the same sums as an uninterrupted one.
+public class Checkpoint {
+  final Path path;
+  // Trials run between saves
+  final int every;
+  private final boolean resume;
+
+  // Saves to path every so many trials. With resume, a run that finds a checkpoint of
+  // itself at path continues from it; otherwise any old checkpoint is overwritten.
+  public Checkpoint(Path path, int every, boolean resume) {
+    this.path = path;
+    this.every = every;
+    this.resume = resume;
+  }
+
+  // Progress of a run
+  static class State {
+    final long seed;
+    final int completed;
+    final double[] sums;
+
+    State(long seed, int completed, double[] sums) {
+      this.seed = seed;
+      this.completed = completed;
+      this.sums = sums;
+    }
+  }
+
+  // The saved progress of run, or null if there is none to resume. run identifies
+  // the tournament (mode, trial count, strategies); a checkpoint of another run is
+  // an error rather than something to silently restart over.
+  State load(String run) {
+    Map<String, String> fields = read();
+    if (fields == null) {
+      return null;
+    }
+    if (!run.equals(fields.get("run"))) {
+      throw new IllegalStateException(path + ": checkpoint is of another run: " + fields.get("run"));
+    }
+    String[] sums = fields.get("sums").split(",");
+    double[] values = new double[sums.length];
+    for (int i = 0; i < sums.length; ++i) {
+      values[i] = Double.parseDouble(sums[i]);
+    }
+    return new State(
+        Long.parseLong(fields.get("seed")), Integer.parseInt(fields.get("completed")), values);
+  }
+
+  // The seed of the run to be resumed, or null if there is none, so the run can
+  // report the seed it will actually use before it starts
+  Long seed() {
+    Map<String, String> fields = read();
+    return fields == null ? null : Long.valueOf(fields.get("seed"));
+  }
+
+  // The checkpoint's fields, or null if there is none to resume
+  private Map<String, String> read() {
+    if (!resume || !Files.exists(path)) {
+      return null;
+    }
+    Map<String, String> fields = new HashMap<>();
+    try {
+      for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+        int eq = line.indexOf('=');
+        if (eq > 0) {
+          fields.put(line.substring(0, eq), line.substring(eq + 1));
+        }
+      }
+    } catch (IOException ioe) {
+      throw new RuntimeException(path + ": cannot read checkpoint", ioe);
+    }
+    return fields;
+  }
+
+  // Writes the checkpoint to a temporary file and renames it over the old one, so a
+  // run killed mid-save still leaves the previous checkpoint intact.
+  void save(String run, State state) {
+    List<String> lines = new ArrayList<>();
+    lines.add("run=" + run);
+    lines.add("seed=" + state.seed);
+    lines.add("completed=" + state.completed);
+    StringBuilder sums = new StringBuilder();
+    for (int i = 0; i < state.sums.length; ++i) {
+      sums.append(i == 0 ? "" : ",").append(Double.toHexString(state.sums[i]));
+    }
+    lines.add("sums=" + sums);
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      Files.write(tmp, lines, StandardCharsets.UTF_8);
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ioe) {
+      throw new RuntimeException(path + ": cannot write checkpoint", ioe);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+// DeferredAcceptance.java: university-proposing matcher used by Admissions
+// COS 445 SD1, Spring 2019
+
+import java.util.Arrays;
+
+public class DeferredAcceptance {
+  // Matches universities to students. Each university proposes to its applicants
+  // from most to least preferred, and a student holds on to the best proposal so far
+  // according to their application list. Returns, for each student, the university
+  // they end up at or -1.
+  //
+  // Unmatched universities that still have applicants wait in a FIFO worklist, so
+  // the total work is proportional to the number of applications. The result is the
+  // university-optimal stable matching, whatever order proposals are made in.
+  public static int[] match(UniversityPreferences uniPrefs) {
+    return match(uniPrefs, null);
+  }
+
+  // How much work a matching took
+  static class Counters {
+    // Proposals made, and how many of them the student turned down
+    long proposals;
+    long rejections;
+    // Times a student dropped the university they held for a better one
+    long tradeUps;
+    // Rounds of the worklist: every university queued at the start of a pass
+    // proposes once before the next pass begins
+    long passes;
+    long unmatchedStudents;
+    long unmatchedUniversities;
+  }
+
+  // As match(uniPrefs), also adding up its work in counters if that is not null
+  static int[] match(UniversityPreferences uniPrefs, Counters counters) {
+    final int numUnis = uniPrefs.numUniversities();
+    final int numStus = uniPrefs.numStudents();
+    int[] stuUnis = new int[numStus];
+    int[] uniStus = new int[numUnis];
+    Arrays.fill(stuUnis, -1);
+    Arrays.fill(uniStus, -1);
+    // heldRank[stu] is the rank stu gave the university they hold, if any
+    int[] heldRank = new int[numStus];
+    Arrays.fill(heldRank, UniversityPreferences.NOT_APPLIED);
+
+    // next[uni] is the entry of the next applicant uni proposes to
+    int[] next = new int[numUnis];
+    // Ring buffer of universities; each one is queued at most once at a time
+    int[] worklist = new int[numUnis];
+    int head = 0, size = 0;
+    // Counted in locals so counting costs next to nothing when counters is null
+    long proposals = 0, rejections = 0, tradeUps = 0, passes = 0;
+    int passLeft = 0;
+    for (int uni = 0; uni < numUnis; ++uni) {
+      next[uni] = uniPrefs.start[uni + 1] - 1;
+      if (next[uni] >= uniPrefs.start[uni]) {
+        worklist[size++] = uni;
+      }
+    }
+
+    while (size > 0) {
+      if (passLeft == 0) {
+        ++passes;
+        passLeft = size;
+      }
+      --passLeft;
+      final int uni = worklist[head];
+      head = (head + 1) % numUnis;
+      --size;
+
+      final int entry = next[uni]--;
+      final int stu = uniPrefs.students[entry];
+      ++proposals;
+      if (uniPrefs.ranks[entry] < heldRank[stu]) {
+        final int jilted = stuUnis[stu];
+        if (jilted != -1) {
+          ++tradeUps;
+          uniStus[jilted] = -1;
+          if (next[jilted] >= uniPrefs.start[jilted]) {
+            worklist[(head + size++) % numUnis] = jilted;
+          }
+        }
+        stuUnis[stu] = uni;
+        uniStus[uni] = stu;
+        heldRank[stu] = uniPrefs.ranks[entry];
+      } else {
+        ++rejections;
+      }
+
+      if (uniStus[uni] == -1 && next[uni] >= uniPrefs.start[uni]) {
+        worklist[(head + size++) % numUnis] = uni;
+      }
+    }
+
+    assert isStable(uniPrefs, uniStus, heldRank) : "unstable matching";
+    if (counters != null) {
+      counters.proposals += proposals;
+      counters.rejections += rejections;
+      counters.tradeUps += tradeUps;
+      counters.passes += passes;
+      for (int stu = 0; stu < numStus; ++stu) {
+        if (stuUnis[stu] == -1) {
+          ++counters.unmatchedStudents;
+        }
+      }
+      for (int uni = 0; uni < numUnis; ++uni) {
+        if (uniStus[uni] == -1) {
+          ++counters.unmatchedUniversities;
+        }
+      }
+    }
+    return stuUnis;
+  }
+
+  // True if no university and applicant would both rather be matched to each other
+  // than to whom they are matched with. An unmatched student holds rank NOT_APPLIED.
+  static boolean isStable(UniversityPreferences uniPrefs, int[] uniStus, int[] heldRank) {
+    for (int uni = 0; uni < uniPrefs.numUniversities(); ++uni) {
+      // Walk the applicants uni prefers to its match, from most preferred down
+      for (int e = uniPrefs.start[uni + 1] - 1; e >= uniPrefs.start[uni]; --e) {
+        final int stu = uniPrefs.students[e];
+        if (stu == uniStus[uni]) {
+          if (heldRank[stu] != uniPrefs.ranks[e]) {
+            return false;
+          }
+          break;
+        }
+        if (uniPrefs.ranks[e] < heldRank[stu]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,104 @@
+// DeferredAcceptanceCheck.java: compares DeferredAcceptance with a naive reference
+// COS 445 SD1, Spring 2019
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Run with "make check". Draws random rooms whose aptitudes and synergies take only
+// a few values, so universities often see applicants of equal quality, and whose
+// application lists may name a university twice, then checks that
+// DeferredAcceptance.match gives the same matching as a direct transcription of
+// university-proposing deferred acceptance.
+public class DeferredAcceptanceCheck {
+  private static final int ROOMS = 20000;
+
+  public static void main(String[] args) {
+    final SplittableRandom rng = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 445);
+    for (int room = 0; room < ROOMS; ++room) {
+      final int n = 1 + rng.nextInt(25);
+      final double[] aptitudes = new double[n];
+      final double[][] synergies = new double[n][n];
+      final int[][] stuPrefs = new int[n][];
+      for (int stu = 0; stu < n; ++stu) {
+        aptitudes[stu] = rng.nextInt(3);
+        for (int uni = 0; uni < n; ++uni) {
+          synergies[stu][uni] = rng.nextInt(3);
+        }
+        stuPrefs[stu] = new int[rng.nextInt(Math.min(n, Admissions.numApplications) + 1)];
+        for (int i = 0; i < stuPrefs[stu].length; ++i) {
+          stuPrefs[stu][i] = rng.nextInt(n);
+        }
+      }
+      final int[] expected = reference(n, stuPrefs, aptitudes, synergies);
+      final int[] actual =
+          DeferredAcceptance.match(
+              UniversityPreferences.build(n, stuPrefs, aptitudes, Synergies.matrix(synergies)));
+      if (!Arrays.equals(expected, actual)) {
+        throw new RuntimeException(
+            "room " + room + ": expected " + Arrays.toString(expected)
+                + " but matched " + Arrays.toString(actual)
+                + "\napplications " + Arrays.deepToString(stuPrefs)
+                + "\naptitudes " + Arrays.toString(aptitudes)
+                + "\nsynergies " + Arrays.deepToString(synergies));
+      }
+    }
+    System.out.println("DeferredAcceptance: " + ROOMS + " rooms match the reference");
+  }
+
+  // Universities prefer higher aptitude + synergy and, among equals, the higher
+  // student index. A student ranks universities by their first place in the
+  // student's list and never accepts one they did not apply to. Until no university
+  // can propose, the lowest-numbered unmatched university proposes to its best
+  // applicant it has not proposed to yet.
+  static int[] reference(int n, int[][] stuPrefs, double[] aptitudes, double[][] synergies) {
+    final boolean[][] proposed = new boolean[n][n];
+    final int[] stuUnis = new int[n];
+    final int[] uniStus = new int[n];
+    Arrays.fill(stuUnis, -1);
+    Arrays.fill(uniStus, -1);
+    while (true) {
+      int uni = -1, stu = -1;
+      for (int u = 0; u < n && stu == -1; ++u) {
+        if (uniStus[u] != -1) {
+          continue;
+        }
+        for (int s = 0; s < n; ++s) {
+          if (proposed[u][s] || rank(stuPrefs[s], u) < 0) {
+            continue;
+          }
+          if (stu == -1 || prefers(aptitudes[s] + synergies[s][u], s,
+              aptitudes[stu] + synergies[stu][u], stu)) {
+            stu = s;
+          }
+        }
+        uni = u;
+      }
+      if (stu == -1) {
+        return stuUnis;
+      }
+      proposed[uni][stu] = true;
+      final int held = stuUnis[stu];
+      if (held == -1 || rank(stuPrefs[stu], uni) < rank(stuPrefs[stu], held)) {
+        if (held != -1) {
+          uniStus[held] = -1;
+        }
+        stuUnis[stu] = uni;
+        uniStus[uni] = stu;
+      }
+    }
+  }
+
+  private static boolean prefers(double qa, int sa, double qb, int sb) {
+    return qa > qb || (qa == qb && sa > sb);
+  }
+
+  // Where uni first appears in prefs, or -1
+  private static int rank(int[] prefs, int uni) {
+    for (int i = 0; i < prefs.length; ++i) {
+      if (prefs[i] == uni) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
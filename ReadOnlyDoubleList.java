@@ -0,0 +1,24 @@
+// ReadOnlyDoubleList.java: unmodifiable List<Double> view of a double[]
+// COS 445 SD1, Spring 2019
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+public class ReadOnlyDoubleList extends AbstractList<Double> implements RandomAccess {
+  private final double[] values;
+
+  // Wraps values without copying; later writes to the array show through the view
+  public ReadOnlyDoubleList(double[] values) {
+    this.values = values;
+  }
+
+  @Override
+  public Double get(int index) {
+    return values[index];
+  }
+
+  @Override
+  public int size() {
+    return values.length;
+  }
+}
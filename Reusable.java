@@ -0,0 +1,10 @@
+// Reusable.java: marker for strategies that can be reused across trials
+// Shared code for all Strategy Design Assignments
+
+// By default a fresh strategy object is constructed for every slot of every trial.
+// A strategy class that also implements Reusable is constructed once per slot (and
+// per worker thread) and that object is kept for every later trial of the
+// tournament, so it can hold on to buffers or precomputed tables. Such a strategy
+// must not let state from one trial change its answers in the next beyond what it
+// could compute itself. A reused object is never called by two threads at once.
+public interface Reusable {}
@@ -0,0 +1,261 @@
+// StrategyInvoker.java: runs strategy calls with a timeout
+// Shared code for all Strategy Design Assignments
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StrategyInvoker {
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  // With CPU budgets, a call may take this many times its budget in wall-clock time
+  // (sleeping, blocked or starved of a core) before it times out regardless
+  static final int WALL_FACTOR = 4;
+  // How often a running call's CPU time is checked against its budget
+  private static final long POLL_MS = 20;
+
+  // Strategy calls run on virtual threads where the JVM has them (Java 21+) and on a
+  // cached pool of daemon threads otherwise.
+  static final ExecutorService service = newExecutor();
+
+  // Classes named in -Dtournament.inline=Student_usnews,Student_holist are trusted to
+  // be fast and are called on the caller's thread, skipping the executor. They cannot
+  // be interrupted, but a call that overruns its timeout still counts as timed out.
+  private final Set<String> inline;
+  // Measures every call when set; see StrategyProfile
+  private StrategyProfile profile;
+  // With -Dtournament.budget=cpu, a call's timeout limits the CPU time of the thread
+  // running it rather than wall-clock time, so calls are not charged for waiting on a
+  // busy machine.
+  private final boolean cpuBudget;
+  // With -Dtournament.isolate=true, a class's calls after its first time out run in
+  // a separate process (when the caller can do that), which is killed if it overruns.
+  // A timed-out call on one of our own threads cannot be stopped, only interrupted.
+  private final boolean isolate;
+  // With -Dtournament.maxTimeouts=N, a class whose calls have timed out N times is
+  // blacklisted: its later calls fail at once. 0 never blacklists.
+  private final int maxTimeouts;
+  private final Map<Class<?>, AtomicInteger> timeouts = new ConcurrentHashMap<>();
+
+  StrategyInvoker(Set<String> inline) {
+    this(inline, false, false, 0);
+  }
+
+  StrategyInvoker(Set<String> inline, boolean cpuBudget, boolean isolate, int maxTimeouts) {
+    this.inline = Collections.unmodifiableSet(new HashSet<>(inline));
+    this.cpuBudget = cpuBudget;
+    this.isolate = isolate;
+    this.maxTimeouts = maxTimeouts;
+    if (cpuBudget && threads.isThreadCpuTimeSupported()) {
+      threads.setThreadCpuTimeEnabled(true);
+    }
+  }
+
+  static StrategyInvoker fromProperties() {
+    String names = System.getProperty("tournament.inline", "");
+    Set<String> inline = new HashSet<>(Arrays.asList(names.split(",")));
+    inline.remove("");
+    return new StrategyInvoker(
+        inline,
+        "cpu".equals(System.getProperty("tournament.budget", "wall")),
+        Boolean.getBoolean("tournament.isolate"),
+        Integer.getInteger("tournament.maxTimeouts", 0));
+  }
+
+  // A strategy call run in a separate process, which the call kills if it runs past
+  // msTimeout, throwing TimeoutException
+  interface IsolatedCall<T> {
+    T call(int msTimeout) throws Exception;
+  }
+
+  // Installs profile, or uninstalls with null. Set it before any strategy is called.
+  void setProfile(StrategyProfile profile) {
+    this.profile = profile;
+  }
+
+  // Whether calls are charged for, or profiled by, only the CPU time of the thread
+  // that runs them, so that work a strategy hands to other threads escapes both
+  boolean measuresThreadCpu() {
+    return cpuBudget || profile != null;
+  }
+
+  private static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      return PlatformThreads.newExecutor();
+    }
+  }
+
+  // Profiled calls and calls on a CPU budget run on platform threads, since the JVM
+  // may not report CPU time or allocation for virtual threads. Created on first use.
+  private static class PlatformThreads {
+    static final ExecutorService service = newExecutor();
+
+    static ExecutorService newExecutor() {
+      return Executors.newCachedThreadPool(
+          (Runnable r) -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+          });
+    }
+  }
+
+  <T> T invoke(Class<?> strategy, Callable<T> task, int msTimeout) {
+    return invoke(strategy, task, null, msTimeout);
+  }
+
+  // As invoke(strategy, task, msTimeout), where isolated (if not null) makes the same
+  // call in a separate process. Calls that run in another process are not profiled.
+  <T> T invoke(Class<?> strategy, Callable<T> task, IsolatedCall<T> isolated, int msTimeout) {
+    final String error = strategy.getSimpleName();
+    final AtomicInteger timedOut = timeouts.get(strategy);
+    final int offenses = timedOut == null ? 0 : timedOut.get();
+    if (maxTimeouts > 0 && offenses >= maxTimeouts) {
+      throw new RuntimeException(error + ": blacklisted");
+    }
+    final StrategyProfile profile = this.profile;
+    final StrategyProfile.Entry entry = profile == null ? null : profile.entry(strategy);
+    try {
+      if (isolate && isolated != null && offenses > 0) {
+        return runIsolated(error, isolated, msTimeout);
+      } else if (entry != null) {
+        return invoke(strategy, entry.measure(task), msTimeout, PlatformThreads.service);
+      } else {
+        return invoke(strategy, task, msTimeout, cpuBudget ? PlatformThreads.service : service);
+      }
+    } catch (RuntimeException e) {
+      if (entry != null) {
+        entry.failed(e);
+      }
+      if (e.getCause() instanceof TimeoutException) {
+        final int count =
+            timeouts.computeIfAbsent(strategy, k -> new AtomicInteger()).incrementAndGet();
+        if (count == maxTimeouts) {
+          System.err.println(error + ": blacklisted after " + count + " time outs");
+        }
+      }
+      throw e;
+    }
+  }
+
+  private <T> T invoke(
+      Class<?> strategy, Callable<T> task, int msTimeout, ExecutorService executor) {
+    final String error = strategy.getSimpleName();
+    if (!inline.contains(strategy.getName())) {
+      return cpuBudget
+          ? runWithCpuBudget(error, task, msTimeout, executor)
+          : runWithTimeout(error, task, msTimeout, executor);
+    }
+    final long start = cpuBudget ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    T ret;
+    try {
+      ret = task.call();
+    } catch (Throwable t) { // as the executor would report it
+      throw new RuntimeException(error + ": execution", t);
+    }
+    final long end = cpuBudget ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    if (end - start > TimeUnit.MILLISECONDS.toNanos(msTimeout)) {
+      throw new RuntimeException(error + ": time out", new TimeoutException());
+    }
+    return ret;
+  }
+
+  private static <T> T runIsolated(String error, IsolatedCall<T> isolated, int msTimeout) {
+    try {
+      return isolated.call(msTimeout);
+    } catch (TimeoutException e) {
+      throw new RuntimeException(error + ": time out", e);
+    } catch (Exception e) {
+      throw new RuntimeException(error + ": execution", e);
+    }
+  }
+
+  static <T> T runWithTimeout(String error, Callable<T> task, int msTimeout) {
+    return runWithTimeout(error, task, msTimeout, service);
+  }
+
+  private static <T> T runWithTimeout(
+      String error, Callable<T> task, int msTimeout, ExecutorService executor) {
+    Future<T> future = executor.submit(task);
+    try {
+      return future.get(msTimeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new RuntimeException(error + ": time out", e);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw new RuntimeException(error + ": interrupt", e);
+    } catch (ExecutionException e) {
+      future.cancel(true);
+      throw new RuntimeException(error + ": execution", e);
+    }
+  }
+
+  // As runWithTimeout, but msTimeout limits the CPU time of the thread running task,
+  // checked every POLL_MS, and WALL_FACTOR times msTimeout limits its wall-clock time
+  private static <T> T runWithCpuBudget(
+      String error, Callable<T> task, int msTimeout, ExecutorService executor) {
+    final CpuClock clock = new CpuClock();
+    Future<T> future =
+        executor.submit(
+            () -> {
+              clock.start();
+              return task.call();
+            });
+    final long budget = TimeUnit.MILLISECONDS.toNanos(msTimeout);
+    final long deadline = System.nanoTime() + WALL_FACTOR * budget;
+    try {
+      while (true) {
+        try {
+          return future.get(POLL_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          if (!future.isDone() && (clock.used() > budget || System.nanoTime() - deadline > 0)) {
+            future.cancel(true);
+            throw new RuntimeException(error + ": time out", e);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw new RuntimeException(error + ": interrupt", e);
+    } catch (ExecutionException e) {
+      future.cancel(true);
+      throw new RuntimeException(error + ": execution", e);
+    }
+  }
+
+  // CPU time the thread running a task has used since it started the task
+  private static class CpuClock {
+    private volatile long start;
+    private volatile long threadId = -1; // written last, so start is set once it is
+
+    void start() {
+      start = threads.getCurrentThreadCpuTime();
+      threadId = Thread.currentThread().getId();
+    }
+
+    long used() {
+      final long id = threadId;
+      if (id < 0) {
+        return 0;
+      }
+      final long now = threads.getThreadCpuTime(id);
+      return (now < 0 || start < 0) ? 0 : now - start;
+    }
+  }
+}
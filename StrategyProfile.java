@@ -0,0 +1,172 @@
+// StrategyProfile.java: per-strategy latency, CPU time and allocation of strategy calls
+// Shared code for all Strategy Design Assignments
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+// Collected by StrategyInvoker when a profile is installed; with none installed the
+// invoker does not measure anything.
+public class StrategyProfile {
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  // Allocation counters are a HotSpot extension of ThreadMXBean
+  private static final com.sun.management.ThreadMXBean allocation =
+      threads instanceof com.sun.management.ThreadMXBean
+          ? (com.sun.management.ThreadMXBean) threads
+          : null;
+
+  private final Map<Class<?>, Entry> entries = new ConcurrentHashMap<>();
+
+  StrategyProfile() {
+    if (threads.isCurrentThreadCpuTimeSupported()) {
+      threads.setThreadCpuTimeEnabled(true);
+    }
+    if (allocation != null && allocation.isThreadAllocatedMemorySupported()) {
+      allocation.setThreadAllocatedMemoryEnabled(true);
+    }
+  }
+
+  Entry entry(Class<?> strategy) {
+    return entries.computeIfAbsent(strategy, k -> new Entry());
+  }
+
+  // The measurements of one strategy class over all of its calls
+  static class Entry {
+    // Latencies in a log-linear histogram: exact below 8 ns, then 8 buckets per power
+    // of two, so a reported percentile is at most 1/8 above the true one
+    private static final int SUB_BUCKETS = 8;
+    private final long[] buckets = new long[SUB_BUCKETS * 61];
+    private long calls;
+    private long maxNanos;
+    private long cpuNanos;
+    private long allocatedBytes;
+    private long timeouts;
+    private long exceptions;
+
+    // task, measured on the thread that runs it. Calls that throw are measured too;
+    // a call that times out is measured if and when it finishes.
+    <T> Callable<T> measure(Callable<T> task) {
+      return () -> {
+        final long cpu = threads.getCurrentThreadCpuTime();
+        final long bytes = allocatedBytes();
+        final long start = System.nanoTime();
+        try {
+          return task.call();
+        } finally {
+          final long nanos = System.nanoTime() - start;
+          final long cpuEnd = threads.getCurrentThreadCpuTime();
+          final long bytesEnd = allocatedBytes();
+          record(
+              nanos,
+              (cpu < 0 || cpuEnd < 0) ? 0 : cpuEnd - cpu,
+              (bytes < 0 || bytesEnd < 0) ? 0 : bytesEnd - bytes);
+        }
+      };
+    }
+
+    // Counts a call that the invoker gave up on: a timeout, or any other failure
+    synchronized void failed(RuntimeException e) {
+      if (e.getCause() instanceof TimeoutException) {
+        ++timeouts;
+      } else {
+        ++exceptions;
+      }
+    }
+
+    private synchronized void record(long nanos, long cpu, long bytes) {
+      ++buckets[bucket(nanos)];
+      ++calls;
+      maxNanos = Math.max(maxNanos, nanos);
+      cpuNanos += cpu;
+      allocatedBytes += bytes;
+    }
+
+    private static long allocatedBytes() {
+      return allocation == null ? -1 : allocation.getCurrentThreadAllocatedBytes();
+    }
+
+    private static int bucket(long nanos) {
+      if (nanos < SUB_BUCKETS) {
+        return (int) Math.max(nanos, 0);
+      }
+      final int exp = 63 - Long.numberOfLeadingZeros(nanos);
+      return (exp - 2) * SUB_BUCKETS + (int) ((nanos >>> (exp - 3)) & (SUB_BUCKETS - 1));
+    }
+
+    // Largest latency that falls in bucket
+    private static long upperBound(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+        return bucket;
+      }
+      final int exp = bucket / SUB_BUCKETS + 2;
+      final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exp - 3);
+      return lower + (1L << (exp - 3)) - 1;
+    }
+
+    // Latency at or below which fraction p of the calls finished
+    synchronized long percentile(double p) {
+      final long rank = Math.max(1, (long) Math.ceil(p * calls));
+      long seen = 0;
+      for (int i = 0; i < buckets.length; ++i) {
+        seen += buckets[i];
+        if (seen >= rank) {
+          return Math.min(upperBound(i), maxNanos);
+        }
+      }
+      return maxNanos;
+    }
+
+    synchronized long cpuTotal() {
+      return cpuNanos;
+    }
+
+    private synchronized String row(String name) {
+      return String.format(
+          Locale.ROOT,
+          "%s,%d,%.3f,%.3f,%.3f,%.3f,%d,%d,%d",
+          name,
+          calls,
+          percentile(0.5) / 1e6,
+          percentile(0.99) / 1e6,
+          maxNanos / 1e6,
+          cpuNanos / 1e6,
+          allocatedBytes,
+          timeouts,
+          exceptions);
+    }
+  }
+
+  // One CSV row per strategy class, slowest total CPU time first
+  List<String> summary() {
+    List<Map.Entry<Class<?>, Entry>> sorted = new ArrayList<>(entries.entrySet());
+    sorted.sort(
+        Comparator.comparingLong((Map.Entry<Class<?>, Entry> e) -> e.getValue().cpuTotal())
+            .reversed()
+            .thenComparing(e -> e.getKey().getName()));
+    List<String> lines = new ArrayList<>();
+    lines.add("strategy,calls,p50_ms,p99_ms,max_ms,cpu_ms,allocated_bytes,timeouts,exceptions");
+    for (Map.Entry<Class<?>, Entry> e : sorted) {
+      lines.add(e.getValue().row(e.getKey().getSimpleName()));
+    }
+    return lines;
+  }
+
+  void write(Path path) {
+    try {
+      Files.write(path, summary(), StandardCharsets.UTF_8);
+    } catch (IOException ioe) {
+      throw new RuntimeException(path + ": cannot write profile", ioe);
+    }
+  }
+}
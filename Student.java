@@ -5,6 +5,14 @@
 import java.util.List;
 
 public interface Student {
+  // Called with this simulation's stats before this object's first getApplications
+  // call, and again before any call in which they differ (e.g. in a sweep over
+  // configs). Override it to precompute tables or buffers that depend only on them:
+  // a Reusable strategy keeps the object, and so what it prepared, for every later
+  // trial of the tournament, while other strategies are prepared in every trial.
+  // The call counts towards the time limit of the getApplications call after it.
+  public default void prepare(int N, double S, double T, double W) {}
+
   // Given the stats of this simulation, output which schools to apply to
   // aptitude is drawn from U[0, S]
   // schools denote the qualities of the colleges drawn from U[0, T] and 
@@ -15,12 +23,54 @@ public interface Student {
   // Return value `ret` must hold:
   // * ret.length == 10 and the elements of ret are all different
   // * forall school in ret, 0 <= school < schools.length
-  public int[] getApplications(
+  // Implement either this method or the double[] version below; a strategy that
+  // implements neither is rejected when the tournament starts.
+  public default int[] getApplications(
       int N,
       double S,
       double T,
       double W,
       double aptitude,
       List<Double> schools,
-      List<Double> synergies);
+      List<Double> synergies) {
+    double[] schoolArray = new double[schools.size()];
+    double[] synergyArray = new double[synergies.size()];
+    for (int i = 0; i != schoolArray.length; ++i) {
+      schoolArray[i] = schools.get(i);
+      synergyArray[i] = synergies.get(i);
+    }
+    return getApplications(N, S, T, W, aptitude, schoolArray, synergyArray);
+  }
+
+  // Same as above, but with the schools and synergies as arrays, so no boxing is
+  // needed. synergies is made for this call, so you may modify it; schools is one
+  // copy shared by the trial's strategies, so do not.
+  // The default wraps them in read-only lists and calls the List version.
+  public default int[] getApplications(
+      int N,
+      double S,
+      double T,
+      double W,
+      double aptitude,
+      double[] schools,
+      double[] synergies) {
+    return getApplications(
+        N, S, T, W, aptitude, new ReadOnlyDoubleList(schools), new ReadOnlyDoubleList(synergies));
+  }
+
+  // Applications for every student in the room who plays this strategy, in one call:
+  // student i has aptitudes[i] and synergies[i], and ret[i] must hold for them what
+  // is required of getApplications above. Override it to share work between the
+  // students, e.g. samples of competitors; strategies that do not are called once
+  // per student instead. As above, synergies are made for this call and schools is
+  // shared. The default calls the double[] version of getApplications for each
+  // student in turn.
+  public default int[][] getBatchApplications(
+      int N, double S, double T, double W, double[] aptitudes, double[] schools, double[][] synergies) {
+    int[][] ret = new int[aptitudes.length][];
+    for (int i = 0; i != ret.length; ++i) {
+      ret[i] = getApplications(N, S, T, W, aptitudes[i], schools, synergies[i]);
+    }
+    return ret;
+  }
 }
@@ -0,0 +1,224 @@
+// StudentSandbox.java: runs Student strategies' calls in worker JVMs that can be killed
+// COS 445 SD1, Spring 2019
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// A thread cannot be stopped from outside, so a strategy that ignores interrupts keeps
+// running after it times out. StrategyInvoker moves such strategies here: each call
+// is sent to a worker JVM, which enforces the call's CPU budget itself and exits if
+// the call overruns, and which is killed if it does not answer in time.
+public class StudentSandbox {
+  private static final int OK = 0;
+  private static final int ERROR = 1;
+  private static final int TIMEOUT = 2;
+
+  // Idle workers, by strategy class; a worker runs one call at a time
+  private static final ClassValue<Queue<Worker>> idle =
+      new ClassValue<Queue<Worker>>() {
+        @Override
+        protected Queue<Worker> computeValue(Class<?> clazz) {
+          return new ConcurrentLinkedQueue<>();
+        }
+      };
+
+  private static final ScheduledExecutorService killer =
+      Executors.newSingleThreadScheduledExecutor(
+          (Runnable r) -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+          });
+
+  private static class Worker {
+    final Process process;
+    final DataOutputStream requests;
+    final DataInputStream replies;
+
+    Worker(Process process) {
+      this.process = process;
+      requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      replies = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    // A JVM with this one's options and class path, running main below
+    static Worker start() throws IOException {
+      List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+      command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(StudentSandbox.class.getName());
+      return new Worker(
+          new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+    }
+  }
+
+  // clazz's applications, computed by a worker. Throws TimeoutException if the call
+  // overran its budget (msTimeout of CPU time) or the worker did not answer within
+  // StrategyInvoker.WALL_FACTOR times msTimeout, and RuntimeException if the
+  // strategy threw.
+  static int[] getApplications(
+      Class<? extends Student> clazz,
+      int N,
+      double S,
+      double T,
+      double W,
+      double aptitude,
+      double[] schools,
+      double[] synergies,
+      int msTimeout)
+      throws IOException, TimeoutException {
+    Worker worker = idle.get(clazz).poll();
+    if (worker == null) {
+      worker = Worker.start();
+    }
+    final Worker killable = worker;
+    final AtomicBoolean killed = new AtomicBoolean();
+    final ScheduledFuture<?> kill =
+        killer.schedule(
+            () -> {
+              killed.set(true);
+              killable.process.destroyForcibly();
+            },
+            (long) StrategyInvoker.WALL_FACTOR * msTimeout,
+            TimeUnit.MILLISECONDS);
+    try {
+      final DataOutputStream out = worker.requests;
+      out.writeUTF(clazz.getName());
+      out.writeInt(N);
+      out.writeDouble(S);
+      out.writeDouble(T);
+      out.writeDouble(W);
+      out.writeDouble(aptitude);
+      writeDoubles(out, schools);
+      writeDoubles(out, synergies);
+      out.writeInt(msTimeout);
+      out.flush();
+
+      final DataInputStream in = worker.replies;
+      switch (in.readInt()) {
+        case OK:
+          final int[] apps = new int[in.readInt()];
+          for (int i = 0; i < apps.length; ++i) {
+            apps[i] = in.readInt();
+          }
+          release(clazz, worker, kill);
+          return apps;
+        case ERROR:
+          final String message = in.readUTF();
+          release(clazz, worker, kill);
+          throw new RuntimeException(message);
+        case TIMEOUT:
+          worker.process.destroyForcibly();
+          throw new TimeoutException(clazz.getSimpleName() + ": over CPU budget in sandbox");
+        default:
+          worker.process.destroyForcibly();
+          throw new IOException(clazz.getSimpleName() + ": bad reply from sandbox");
+      }
+    } catch (IOException ioe) {
+      worker.process.destroyForcibly();
+      if (killed.get()) {
+        throw new TimeoutException(clazz.getSimpleName() + ": sandbox killed");
+      }
+      throw ioe;
+    }
+  }
+
+  // Returns worker to the idle ones unless it is being killed
+  private static void release(Class<?> clazz, Worker worker, ScheduledFuture<?> kill) {
+    if (kill.cancel(false)) {
+      idle.get(clazz).add(worker);
+    }
+  }
+
+  private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+    out.writeInt(values.length);
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static double[] readDoubles(DataInputStream in) throws IOException {
+    final double[] values = new double[in.readInt()];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = in.readDouble();
+    }
+    return values;
+  }
+
+  // Worker: answers calls from stdin until it is closed. Replies go to the real
+  // stdout, and anything the strategies print goes to stderr instead. Strategies are
+  // constructed and prepared for every call, Reusable or not.
+  public static void main(String[] args) throws IOException {
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+    final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+    System.setOut(System.err);
+    final StrategyInvoker invoker =
+        new StrategyInvoker(Collections.emptySet(), true, false, 0);
+    while (true) {
+      final String name;
+      try {
+        name = in.readUTF();
+      } catch (EOFException eof) {
+        return;
+      }
+      final int N = in.readInt();
+      final double S = in.readDouble();
+      final double T = in.readDouble();
+      final double W = in.readDouble();
+      final double aptitude = in.readDouble();
+      final double[] schools = readDoubles(in);
+      final double[] synergies = readDoubles(in);
+      final int msTimeout = in.readInt();
+      try {
+        final Class<? extends Student> clazz = Class.forName(name).asSubclass(Student.class);
+        final int[] apps =
+            invoker.invoke(
+                clazz,
+                () -> {
+                  final Student student = Tournament.newStrategy(clazz);
+                  student.prepare(N, S, T, W);
+                  return Admissions.getApplications(
+                      student, N, S, T, W, aptitude, schools, synergies);
+                },
+                msTimeout);
+        out.writeInt(OK);
+        out.writeInt(apps.length);
+        for (int app : apps) {
+          out.writeInt(app);
+        }
+      } catch (RuntimeException | ClassNotFoundException e) {
+        if (e.getCause() instanceof TimeoutException) {
+          // The call is still running and cannot be stopped, so this worker is done
+          out.writeInt(TIMEOUT);
+          out.flush();
+          Runtime.getRuntime().halt(1);
+        }
+        out.writeInt(ERROR);
+        out.writeUTF(String.valueOf(e.getCause() == null ? e : e.getCause()));
+      }
+      out.flush();
+    }
+  }
+}
@@ -4,9 +4,8 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
-public class Student_ASU implements Student {
+public class Student_ASU implements Student, Reusable {
 
     /*
      * For "large N" (N>20), we filter down to K schools after a quick desirability check,
@@ -16,12 +15,10 @@ public class Student_ASU implements Student {
     private static final int K = 20;   
 
     /*
-     * Mini-lottery parameters:
-     *   M is how many times we run each mini-lottery,
+     * Mini-lottery parameter:
      *   POOL_SIZE is how many competitors per mini-lottery.
-     * Increase them for more accuracy, or decrease if running too slowly.
+     * The lotteries' outcome is computed in closed form rather than simulated.
      */
-    private static final int M = 120;
     private static final int POOL_SIZE = 35;
 
     /*
@@ -31,7 +28,8 @@ public class Student_ASU implements Student {
      */
     private static final double AGGRESSIVENESS = 3.0;
 
-    private static final Random rand = new Random();
+    // The mini-lotteries' outcome in closed form, for this tournament's S and W
+    private AdmissionProbability.Table table;
 
     /**
      * Simple container for sorting. We'll sort in descending order of 'score'.
@@ -53,6 +51,11 @@ public class Student_ASU implements Student {
         }
     }
 
+    @Override
+    public void prepare(int N, double S, double T, double W) {
+        table = AdmissionProbability.table(S, W, POOL_SIZE);
+    }
+
     @Override
     public int[] getApplications(
         int N,
@@ -60,8 +63,8 @@ public class Student_ASU implements Student {
         double T,
         double W,
         double aptitude,
-        List<Double> schools,
-        List<Double> synergies
+        double[] schools,
+        double[] synergies
     ) {
 
         // If N <= 20, just do one-phase: compute expected utility for all schools directly.
@@ -75,7 +78,7 @@ public class Student_ASU implements Student {
         // We'll keep the top K schools by Q_u + S_{s,u} (a quick desirability measure).
         SchoolData[] initial = new SchoolData[N];
         for (int i = 0; i < N; i++) {
-            double desirability = schools.get(i) + synergies.get(i);
+            double desirability = schools[i] + synergies[i];
             initial[i] = new SchoolData(i, desirability);
         }
         // Sort by descending desirability
@@ -90,10 +93,17 @@ public class Student_ASU implements Student {
         // We'll use a combination of logistic approach + mini-lottery simulation
         double avgCompetitor = (S / 2.0) + (W / 2.0);
 
-        for (SchoolData cd : candidates) {
-            int idx = cd.index;
-            double quality = schools.get(idx);
-            double synergy = synergies.get(idx);
+        // Mini-lottery probabilities for all candidates at once
+        double[] myScores = new double[Kactual];
+        for (int c = 0; c < Kactual; c++) {
+            myScores[c] = aptitude + synergies[candidates[c].index];
+        }
+        double[] pSims = estimateProbabilities(myScores, S, W);
+
+        for (int c = 0; c < Kactual; c++) {
+            int idx = candidates[c].index;
+            double quality = schools[idx];
+            double synergy = synergies[idx];
 
             double desirability = quality + synergy;
 
@@ -104,7 +114,7 @@ public class Student_ASU implements Student {
             double pLogistic = 1.0 / (1.0 + Math.exp(-AGGRESSIVENESS * compAdv));
 
             // Probability estimate B: mini-lottery sim
-            double pSim = estimateProbabilitySimulation(aptitude, synergy, S, W, M, POOL_SIZE);
+            double pSim = pSims[c];
 
             // Weighted combination: 60% sim, 40% logistic
             double pAdmission = 0.6 * pSim + 0.4 * pLogistic;
@@ -131,17 +141,22 @@ public class Student_ASU implements Student {
         double S,
         double W,
         double aptitude,
-        List<Double> schools,
-        List<Double> synergies
+        double[] schools,
+        double[] synergies
     ) {
         double avgCompetitor = (S / 2.0) + (W / 2.0);
+        double[] myScores = new double[N];
+        for (int i = 0; i < N; i++) {
+            myScores[i] = aptitude + synergies[i];
+        }
+        double[] pSims = estimateProbabilities(myScores, S, W);
         SchoolData[] data = new SchoolData[N];
         for (int i = 0; i < N; i++) {
-            double desirability = schools.get(i) + synergies.get(i);
-            double compAdv = (aptitude + synergies.get(i)) - avgCompetitor;
+            double desirability = schools[i] + synergies[i];
+            double compAdv = (aptitude + synergies[i]) - avgCompetitor;
 
             double pLogistic = 1.0 / (1.0 + Math.exp(-AGGRESSIVENESS * compAdv));
-            double pSim = estimateProbabilitySimulation(aptitude, synergies.get(i), S, W, M, POOL_SIZE);
+            double pSim = pSims[i];
 
             // 50% sim, 50% logistic for small N
             double pAdmission = 0.5 * pLogistic + 0.5 * pSim;
@@ -161,34 +176,10 @@ public class Student_ASU implements Student {
     }
 
     /**
-     * estimateProbabilitySimulation: run M mini-lotteries, each with POOL_SIZE
-     * random competitors in [0,S] x [0,W], and see how often we are top.
+     * estimateProbabilities: for each score, the probability of beating all of
+     * POOL_SIZE random competitors in [0,S] x [0,W], in closed form.
      */
-    private double estimateProbabilitySimulation(
-        double myAptitude,
-        double mySynergy,
-        double S,
-        double W,
-        int M,
-        int poolSize
-    ) {
-        int wins = 0;
-        double myScore = myAptitude + mySynergy;
-        for (int trial = 0; trial < M; trial++) {
-            boolean iAmTop = true;
-            for (int c = 0; c < poolSize; c++) {
-                double compApt = rand.nextDouble() * S;
-                double compSyn = rand.nextDouble() * W;
-                double compScore = compApt + compSyn;
-                if (compScore >= myScore) {
-                    iAmTop = false;
-                    break;
-                }
-            }
-            if (iAmTop) {
-                wins++;
-            }
-        }
-        return (double) wins / (double) M;
+    private double[] estimateProbabilities(double[] myScores, double S, double W) {
+        return table.topOfPool(myScores);
     }
 }
@@ -1,27 +1,5 @@
-import java.util.Arrays;
-import java.util.List;
-
 public class Student_angyman implements Student {
 
-  private class School implements Comparable<School> {
-    public int index;
-    public double score;
-    public double delta; // for debugging/verification if needed
-
-    public School(int index, double score, double delta) {
-      this.index = index;
-      this.score = score;
-      this.delta = delta;
-    }
-
-    // Sort in descending order of score. If tie, compare by index ascending.
-    @Override
-    public int compareTo(School other) {
-      int cmp = Double.compare(other.score, this.score);
-      return (cmp == 0) ? Integer.compare(this.index, other.index) : cmp;
-    }
-  }
-
   @Override
   public int[] getApplications(
       int N,
@@ -29,15 +7,15 @@ public class Student_angyman implements Student {
       double T,
       double W,
       double aptitude,
-      List<Double> qualities,   // Q_u for each university u
-      List<Double> synergies) { // Sₛ,ᵤ for each university u
+      double[] qualities,   // Q_u for each university u
+      double[] synergies) { // Sₛ,ᵤ for each university u
 
-    School[] preferences = new School[N];
+    double[] preferences = new double[N];
     double[] deltas = new double[N];
     
     // First, compute delta for each school
     for (int i = 0; i < N; i++) {
-      double synergy = synergies.get(i);
+      double synergy = synergies[i];
       // delta = (aptitude + synergy) - ((S + W)/2)
       double delta = (aptitude + synergy) - ((S + W) / 2.0);
       deltas[i] = delta;
@@ -58,8 +36,8 @@ public class Student_angyman implements Student {
 
     // Now compute the overall score for each school.
     for (int i = 0; i < N; i++) {
-      double quality = qualities.get(i);    // Q_u for school i
-      double synergy = synergies.get(i);      // Sₛ,ᵤ for school i
+      double quality = qualities[i];    // Q_u for school i
+      double synergy = synergies[i];      // Sₛ,ᵤ for school i
 
       // True desirability V(u) = quality + synergy.
       double desirability = quality + synergy;
@@ -74,18 +52,10 @@ public class Student_angyman implements Student {
       // Final score: expected payoff = V(u) * acceptance probability.
       double score = desirability * acceptanceProb;
 
-      preferences[i] = new School(i, score, delta);
-    }
-
-    // Sort schools in descending order by score.
-    Arrays.sort(preferences);
-
-    // Select the top 10 schools.
-    int[] applications = new int[10];
-    for (int i = 0; i < 10; i++) {
-      applications[i] = preferences[i].index;
+      preferences[i] = score;
     }
 
-    return applications;
+    // Select the top 10 schools, in descending order by score.
+    return TopK.select(preferences, 10);
   }
 }
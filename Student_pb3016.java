@@ -1,25 +1,38 @@
-import java.util.List;
-import java.util.Random;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Arrays;
 import java.util.Comparator;
 
-public class Student_pb3016 implements Student {
+public class Student_pb3016 implements Student, Reusable {
 
     private static final int SIMULATION_COUNT = 100;
 
+    // Samples the opponents and matches them with us; kept with this object between
+    // trials, with its buffers. Its simulations are independent, so they are split
+    // between the cores (see AdmissionsSimulator.setParallelism).
+    private final AdmissionsSimulator simulator = new AdmissionsSimulator();
+
     // Returns the CDF value for the sum of two independent Uniform[0, X] random
     // variables.
     private double computeProbability(double x, double A, double B) {
-        double lower = Math.min(A, B);
-        double upper = Math.max(A, B);
-        if (x < lower) {
-            return (x * x) / (2 * lower * upper);
-        } else if (x < upper) {
-            return (2 * x - lower) / (2 * upper);
-        } else {
-            return 1 - ((lower + upper - x) * (lower + upper - x)) / (2 * lower * upper);
+        return AdmissionProbability.sumCdf(x, A, B);
+    }
+
+    // The admission probability aimed for at each university index; it depends only
+    // on the tournament's stats, so prepare computes it once.
+    private double[] targets;
+
+    @Override
+    public void prepare(int totalUnis, double A, double Q, double W) {
+        simulator.setParallelism(Runtime.getRuntime().availableProcessors());
+        targets = new double[totalUnis];
+        for (int uniIndex = 0; uniIndex < totalUnis; uniIndex++) {
+            double rankFraction = 1 - ((double) uniIndex / (totalUnis - 1));
+            double expectedMax = Math.max(0, totalUnis - (1 / rankFraction)) / (double) totalUnis;
+            if (Q != 0) {
+                targets[uniIndex] = (A * rankFraction + W * expectedMax) / (A + W);
+            } else {
+                targets[uniIndex] = (double) totalUnis / (totalUnis - 1);
+            }
         }
     }
 
@@ -28,15 +41,7 @@ public class Student_pb3016 implements Student {
             double applicantScore, double[] uniQualities,
             double[] applicantSynergy, double Q) {
         double prob = computeProbability(applicantScore + applicantSynergy[uniIndex], A, W);
-        double rankFraction = 1 - ((double) uniIndex / (totalUnis - 1));
-        double expectedMax = Math.max(0, totalUnis - (1 / rankFraction)) / (double) totalUnis;
-        double target;
-        if (Q != 0) {
-            target = (A * rankFraction + W * expectedMax) / (A + W);
-        } else {
-            target = (double) totalUnis / (totalUnis - 1);
-        }
-        double factor = Math.min(1, prob / target);
+        double factor = Math.min(1, prob / targets[uniIndex]);
         double score = Math.sqrt(factor) * (factor * uniQualities[uniIndex] + applicantSynergy[uniIndex]);
         return score;
     }
@@ -92,44 +97,19 @@ public class Student_pb3016 implements Student {
         return output;
     }
 
-    private int[] opponentStrategy(int count, double A, double Q, double W,
-            double opponentAptitude, double[] uniQualities, double[] opponentSynergy) {
-        // Local class to represent a school.
-        class School implements Comparable<School> {
-            public int index;
-            public double score;
-            public double delta; // for debugging/verification if needed
-
-            public School(int index, double score, double delta) {
-                this.index = index;
-                this.score = score;
-                this.delta = delta;
-            }
-
-            // Sort in descending order of score. If tie, compare by index ascending.
-            @Override
-            public int compareTo(School other) {
-                int cmp = Double.compare(other.score, this.score);
-                return (cmp == 0) ? Integer.compare(this.index, other.index) : cmp;
-            }
-        }
-
+    // Writes an opponent's applications: the 10 schools with the highest expected
+    // payoff, desirability times a logistic acceptance probability. scores is scratch.
+    private static void opponentStrategy(double A, double W, double opponentAptitude,
+            double[] uniQualities, double[] opponentSynergy, double[] scores, int[] applications) {
         int N = uniQualities.length;
-        School[] preferences = new School[N];
-        double[] deltas = new double[N];
 
         // Compute delta for each school:
         // delta = (opponentAptitude + synergy) - ((A + W) / 2)
-        for (int i = 0; i < N; i++) {
-            double synergy = opponentSynergy[i];
-            double delta = (opponentAptitude + synergy) - ((A + W) / 2.0);
-            deltas[i] = delta;
-        }
-
-        // Compute the minimum and maximum delta.
         double dmin = Double.POSITIVE_INFINITY;
         double dmax = Double.NEGATIVE_INFINITY;
-        for (double delta : deltas) {
+        for (int i = 0; i < N; i++) {
+            double delta = (opponentAptitude + opponentSynergy[i]) - ((A + W) / 2.0);
+            scores[i] = delta;
             if (delta < dmin)
                 dmin = delta;
             if (delta > dmax)
@@ -140,30 +120,16 @@ public class Student_pb3016 implements Student {
         double midpoint = (dmin + dmax) / 2.0;
         double k = (dmax - dmin != 0) ? Math.log(99) / (dmax - dmin) : 1.0;
 
-        // Compute the overall score for each school.
+        // Final score: expected payoff = V(u) * acceptance probability, where the
+        // true desirability V(u) = quality + synergy.
         for (int i = 0; i < N; i++) {
-            double quality = uniQualities[i]; // intrinsic quality of school i
-            double synergy = opponentSynergy[i]; // synergy for school i
-            // True desirability V(u) = quality + synergy.
-            double desirability = quality + synergy;
-            double delta = deltas[i];
-            // Compute acceptance probability using a logistic function.
-            double acceptanceProb = 1.0 / (1.0 + Math.exp(-k * (delta - midpoint)));
-            // Final score: expected payoff = V(u) * acceptance probability.
-            double score = desirability * acceptanceProb;
-            preferences[i] = new School(i, score, delta);
-        }
-
-        // Sort schools in descending order by score.
-        Arrays.sort(preferences);
-
-        // Select the top 'count' schools.
-        int[] applications = new int[count];
-        for (int i = 0; i < count; i++) {
-            applications[i] = preferences[i].index;
+            double desirability = uniQualities[i] + opponentSynergy[i];
+            double acceptanceProb = 1.0 / (1.0 + Math.exp(-k * (scores[i] - midpoint)));
+            scores[i] = desirability * acceptanceProb;
         }
 
-        return applications;
+        // Select the top schools, in descending order of score (ties by index).
+        TopK.select(scores, N, applications);
     }
 
     // Finds the index of a value in an array; if absent, returns a large number.
@@ -176,118 +142,9 @@ public class Student_pb3016 implements Student {
         return Integer.MAX_VALUE;
     }
 
-    // Runs a simulation of the matching process.
-    // Each proposal is stored as a two-element array: [score, applicantId].
-    private int simulateMatch(int[] myFullList, double myAptitude, double[] uniQualities,
-            double[] mySynergies, double A, double Q, double W) {
-        int totalUnis = uniQualities.length;
-        int totalStudents = totalUnis; // One applicant per university.
-        Random rnd = new Random();
-
-        // Generate opponent data.
-        double[] oppAptitudes = new double[totalStudents - 1];
-        double[][] oppSynergies = new double[totalStudents - 1][totalUnis];
-        for (int i = 0; i < totalStudents - 1; i++) {
-            oppAptitudes[i] = rnd.nextDouble() * A;
-            for (int j = 0; j < totalUnis; j++) {
-                oppSynergies[i][j] = rnd.nextDouble() * W;
-            }
-        }
-
-        // Determine opponent choices using the opponentStrategy helper.
-        int[][] oppChoices = new int[totalStudents - 1][];
-        for (int i = 0; i < totalStudents - 1; i++) {
-            oppChoices[i] = opponentStrategy(10, A, Q, W, oppAptitudes[i], uniQualities, oppSynergies[i]);
-        }
-
-        // Assemble all applicants' choices.
-        int[][] allChoices = new int[totalStudents][];
-        for (int i = 0; i < totalStudents - 1; i++) {
-            allChoices[i] = oppChoices[i];
-        }
-        allChoices[totalStudents - 1] = myFullList;
-
-        // Build proposals for each university.
-        ArrayList<ArrayList<double[]>> proposals = new ArrayList<ArrayList<double[]>>();
-        for (int u = 0; u < totalUnis; u++) {
-            proposals.add(new ArrayList<double[]>());
-        }
-        // Opponent students' proposals.
-        for (int s = 0; s < totalStudents - 1; s++) {
-            for (int uni : allChoices[s]) {
-                double val = oppAptitudes[s] + oppSynergies[s][uni];
-                proposals.get(uni).add(new double[] { val, s });
-            }
-        }
-        // Our student's proposals.
-        for (int uni : myFullList) {
-            double val = myAptitude + mySynergies[uni];
-            proposals.get(uni).add(new double[] { val, totalStudents - 1 });
-        }
-
-        // Sort proposals for each university in ascending order (by score, tie-break by
-        // applicant id).
-        for (int u = 0; u < totalUnis; u++) {
-            Collections.sort(proposals.get(u), new Comparator<double[]>() {
-                public int compare(double[] a, double[] b) {
-                    if (a[0] == b[0]) {
-                        return Double.compare(a[1], b[1]);
-                    }
-                    return Double.compare(a[0], b[0]);
-                }
-            });
-        }
-
-        // Matching process.
-        int[] studentAssignment = new int[totalStudents]; // -1 means no match.
-        int[] uniAssignment = new int[totalUnis];
-        Arrays.fill(studentAssignment, -1);
-        Arrays.fill(uniAssignment, -1);
-
-        int[] proposalPointer = new int[totalUnis];
-        for (int u = 0; u < totalUnis; u++) {
-            proposalPointer[u] = proposals.get(u).size() - 1;
-        }
-
-        boolean updated = true;
-        while (updated) {
-            updated = false;
-            for (int u = 0; u < totalUnis; u++) {
-                if (uniAssignment[u] == -1 && proposalPointer[u] >= 0) {
-                    double[] candidate = proposals.get(u).get(proposalPointer[u]);
-                    proposalPointer[u]--;
-                    int stuId = (int) candidate[1];
-                    if (studentAssignment[stuId] == -1) {
-                        studentAssignment[stuId] = u;
-                        uniAssignment[u] = stuId;
-                        updated = true;
-                    } else {
-                        int currentUni = studentAssignment[stuId];
-                        int newRank = findPosition(allChoices[stuId], u);
-                        int currentRank = findPosition(allChoices[stuId], currentUni);
-                        if (newRank < currentRank) {
-                            uniAssignment[u] = stuId;
-                            studentAssignment[stuId] = u;
-                            uniAssignment[currentUni] = -1;
-                            updated = true;
-                        }
-                    }
-                }
-            }
-        }
-        return studentAssignment[totalStudents - 1];
-    }
-
     @Override
     public int[] getApplications(int totalUnis, double A, double Q, double W,
-            double myAptitude, List<Double> qualityList, List<Double> synergyList) {
-        double[] uniQualities = new double[totalUnis];
-        double[] mySynergies = new double[totalUnis];
-        for (int i = 0; i < totalUnis; i++) {
-            uniQualities[i] = qualityList.get(i);
-            mySynergies[i] = synergyList.get(i);
-        }
-
+            double myAptitude, double[] uniQualities, double[] mySynergies) {
         if (A == 0 && W == 0) {
             int[] def = new int[10];
             for (int i = 0; i < 10; i++) {
@@ -298,13 +155,13 @@ public class Student_pb3016 implements Student {
 
         // Build a full ranking of universities.
         int[] fullRanking = formBasicChoices(totalUnis, A, Q, W, myAptitude, uniQualities, mySynergies);
-        int[] matchTally = new int[totalUnis];
-        for (int sim = 0; sim < SIMULATION_COUNT; sim++) {
-            int match = simulateMatch(fullRanking, myAptitude, uniQualities, mySynergies, A, Q, W);
-            if (match != -1) {
-                matchTally[match]++;
-            }
-        }
+        // Where we end up among totalUnis - 1 opponents who apply as
+        // opponentStrategy does, over SIMULATION_COUNT simulated matchings.
+        AdmissionsSimulator.Policy opponents =
+                (aptitude, schools, synergies, apps, scratch) ->
+                        opponentStrategy(A, W, aptitude, schools, synergies, scratch, apps);
+        int[] matchTally = simulator.matchCounts(uniQualities, myAptitude, mySynergies,
+                fullRanking, A, W, totalUnis - 1, opponents, SIMULATION_COUNT);
         int bestUni = 0;
         for (int i = 1; i < totalUnis; i++) {
             if (matchTally[i] > matchTally[bestUni]) {
@@ -0,0 +1,90 @@
+// Synergies.java: the synergy of every (student, university) pair in a trial
+// COS 445 SD1, Spring 2019
+
+public abstract class Synergies {
+  // Synergy between stu and uni
+  abstract double get(int stu, int uni);
+
+  // stu's synergies with every university. May return scratch, filled in (a new
+  // array if scratch is null), or an array that the caller must not modify.
+  abstract double[] row(int stu, double[] scratch);
+
+  // stu's synergies in an array of the caller's own, which it may modify
+  abstract double[] copyOfRow(int stu);
+
+  // Synergies stored as a full N x N matrix: O(N^2) memory
+  static Synergies matrix(double[][] values) {
+    return new Matrix(values);
+  }
+
+  // Synergies in U[0, W) computed on demand as a hash of (seed, student, university),
+  // so the matrix never has to exist and any entry can be recomputed at any time
+  static Synergies hashed(int n, double W, long seed) {
+    return new Hashed(n, W, seed);
+  }
+
+  private static class Matrix extends Synergies {
+    private final double[][] values;
+
+    Matrix(double[][] values) {
+      this.values = values;
+    }
+
+    @Override
+    double get(int stu, int uni) {
+      return values[stu][uni];
+    }
+
+    @Override
+    double[] row(int stu, double[] scratch) {
+      return values[stu];
+    }
+
+    @Override
+    double[] copyOfRow(int stu) {
+      return values[stu].clone();
+    }
+  }
+
+  private static class Hashed extends Synergies {
+    private final int n;
+    private final double W;
+    private final long seed;
+
+    Hashed(int n, double W, long seed) {
+      this.n = n;
+      this.W = W;
+      this.seed = seed;
+    }
+
+    @Override
+    double get(int stu, int uni) {
+      return unit(stu, uni) * W;
+    }
+
+    @Override
+    double[] row(int stu, double[] scratch) {
+      if (scratch == null) {
+        scratch = new double[n];
+      }
+      for (int uni = 0; uni < n; ++uni) {
+        scratch[uni] = unit(stu, uni) * W;
+      }
+      return scratch;
+    }
+
+    @Override
+    double[] copyOfRow(int stu) {
+      return row(stu, null);
+    }
+
+    // U[0, 1) from the SplitMix64 finalizer applied to the pair's counter
+    private double unit(int stu, int uni) {
+      long z = seed + (((long) stu << 32) | uni) * 0x9E3779B97F4A7C15L;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      z = z ^ (z >>> 31);
+      return (z >>> 11) * 0x1.0p-53;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+// TopK.java: the indices of the largest few of an array of scores
+// COS 445 SD1, Spring 2019
+
+// Strategies score every school and apply to the best 10. Picking those with a
+// 10-element heap of indices takes O(N log 10) time and allocates nothing per
+// school, where sorting N School objects takes O(N log N) and N allocations.
+public class TopK {
+  private TopK() {}
+
+  // The indices of the k largest of scores, largest first by Double.compare, and
+  // lowest index first among equal scores, as the strategies' School classes sort
+  public static int[] select(double[] scores, int k) {
+    final int[] top = new int[k];
+    select(scores, scores.length, top);
+    return top;
+  }
+
+  // Fills top with the indices of the top.length largest of scores[0 .. n), in the
+  // same order as select(scores, k)
+  public static void select(double[] scores, int n, int[] top) {
+    final int k = top.length;
+    if (k > n) {
+      throw new RuntimeException("TopK: " + k + " of " + n + " scores");
+    } else if (k == 0) {
+      return;
+    }
+    // top[0 .. k) is a heap with the worst of the best k so far at top[0]
+    for (int u = 0; u < k; ++u) {
+      int i = u;
+      while (i > 0 && worse(scores, u, top[(i - 1) / 2])) {
+        top[i] = top[(i - 1) / 2];
+        i = (i - 1) / 2;
+      }
+      top[i] = u;
+    }
+    for (int u = k; u < n; ++u) {
+      if (worse(scores, top[0], u)) {
+        siftDown(scores, top, u, k);
+      }
+    }
+    // Take the worst off the heap into the last free place, until it is sorted
+    for (int end = k - 1; end > 0; --end) {
+      final int worst = top[0];
+      siftDown(scores, top, top[end], end);
+      top[end] = worst;
+    }
+  }
+
+  // Whether school a ranks below school b
+  private static boolean worse(double[] scores, int a, int b) {
+    final int cmp = Double.compare(scores[a], scores[b]);
+    return cmp < 0 || (cmp == 0 && a > b);
+  }
+
+  // Puts u in place of the root of the heap top[0 .. size)
+  private static void siftDown(double[] scores, int[] top, int u, int size) {
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && worse(scores, top[child + 1], top[child])) {
+        ++child;
+      }
+      if (!worse(scores, top[child], u)) {
+        break;
+      }
+      top[i] = top[child];
+      i = child;
+    }
+    top[i] = u;
+  }
+}
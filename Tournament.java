@@ -2,50 +2,60 @@
 // COS 445 Spring 2019
 // Created by Andrew Wonnacott
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
 public abstract class Tournament<Strategy, Config> {
   static final Random rand = new Random();
-  static final ExecutorService service =
-      Executors.newCachedThreadPool(
-          (Runnable r) -> {
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            return t;
-          });
+  static final StrategyInvoker invoker = StrategyInvoker.fromProperties();
 
   static <T> T runWithTimeout(String error, Callable<T> task, int msTimeout) {
-    T ret = null;
-    Future<T> future = service.submit(task);
-    try {
-      return future.get(msTimeout, TimeUnit.MILLISECONDS);
-    } catch (TimeoutException e) {
-      future.cancel(true);
+    return StrategyInvoker.runWithTimeout(error, task, msTimeout);
+  }
 
-      throw new RuntimeException(error + ": time out", e);
-    }
-    catch (InterruptedException e) {
-      future.cancel(true);
-      throw new RuntimeException(error + ": interrupt", e);
-    }
-    catch (ExecutionException e) {
-      future.cancel(true);
-      throw new RuntimeException(error + ": execution", e);
+  // No-argument constructors of the strategy classes, looked up once per class
+  private static final ClassValue<MethodHandle> constructors =
+      new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> clazz) {
+          try {
+            return MethodHandles.lookup()
+                .findConstructor(clazz, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+          } catch (ReflectiveOperationException roe) {
+            throw new RuntimeException(roe);
+          }
+        }
+      };
+
+  // The Reusable strategy objects kept by each worker thread, by slot
+  private final ThreadLocal<List<Reused<Strategy>>> reused =
+      ThreadLocal.withInitial(ArrayList::new);
+
+  // A kept strategy object and the session it was last prepared for
+  private static class Reused<S> {
+    final S strategy;
+    Object session;
+
+    Reused(S strategy) {
+      this.strategy = strategy;
     }
   }
 
   final List<Class<? extends Strategy>> strategies;
+  // Trials run between convergence checks of adaptiveTrials
+  static final int adaptiveBatch = 50;
 
   Tournament(Class<Strategy> clazz, List<String> strategyNames) {
     List<Class<? extends Strategy>> strategies = new ArrayList<>();
@@ -59,6 +69,62 @@ public abstract class Tournament<Strategy, Config> {
     this.strategies = Collections.unmodifiableList(strategies);
   }
 
+  static <S> S newStrategy(Class<? extends S> clazz) {
+    try {
+      return clazz.cast(constructors.get(clazz).invokeExact());
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  // The strategy object to play slot of a trial: a new one, or for Reusable classes
+  // the one this thread used for the slot in earlier trials.
+  Strategy strategyFor(int slot, Class<? extends Strategy> clazz) {
+    List<Reused<Strategy>> slots = reused.get();
+    while (slots.size() <= slot) {
+      slots.add(null);
+    }
+    if (!Reusable.class.isAssignableFrom(clazz)) {
+      slots.set(slot, null);
+      return newStrategy(clazz);
+    }
+    Reused<Strategy> kept = slots.get(slot);
+    if (kept == null || kept.strategy.getClass() != clazz) {
+      kept = new Reused<>(newStrategy(clazz));
+      slots.set(slot, kept);
+    }
+    return kept.strategy;
+  }
+
+  // Whether the object strategyFor last returned for slot has yet to be prepared for
+  // session, which stands for whatever the preparation depends on (e.g. the trial's
+  // configuration). New objects always are unprepared.
+  boolean unprepared(int slot, Object session) {
+    List<Reused<Strategy>> slots = reused.get();
+    Reused<Strategy> kept = slot < slots.size() ? slots.get(slot) : null;
+    return kept == null || !session.equals(kept.session);
+  }
+
+  // Records that the object strategyFor last returned for slot has been prepared for
+  // session, so that later trials with the same session skip preparing it
+  void prepared(int slot, Object session) {
+    List<Reused<Strategy>> slots = reused.get();
+    if (slot < slots.size() && slots.get(slot) != null) {
+      slots.get(slot).session = session;
+    }
+  }
+
+  // Stops reusing the object in slot, e.g. when a call to it timed out and may still
+  // be running.
+  void discardStrategy(int slot) {
+    List<Reused<Strategy>> slots = reused.get();
+    if (slot < slots.size()) {
+      slots.set(slot, null);
+    }
+  }
+
   public double[] oneEachTrials(int numTrials, Config config) {
     double[] res = new double[strategies.size()];
 
@@ -78,6 +144,137 @@ public abstract class Tournament<Strategy, Config> {
     return res;
   }
 
+  // Seeded, parallel version of oneEachTrials: trial k always draws from the k-th
+  // stream split off the master seed and the per-trial results are summed in trial
+  // order, so the same seed gives the same answer on any number of threads.
+  public double[] oneEachTrials(int numTrials, Config config, long seed, int threads) {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      return oneEachTrials(numTrials, config, seed, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public double[] oneEachTrials(int numTrials, Config config, long seed, ForkJoinPool pool) {
+    return oneEachTrials(numTrials, config, seed, pool, null);
+  }
+
+  // As above, saving progress to checkpoint (if not null) as it goes and resuming
+  // from it if asked to; a resumed run keeps the seed it started with.
+  public double[] oneEachTrials(
+      int numTrials, Config config, long seed, ForkJoinPool pool, Checkpoint checkpoint) {
+    final String run = "oneEachTrials " + numTrials + " " + strategyNames(strategies);
+    Checkpoint.State state = resume(checkpoint, run, seed, strategies.size());
+    while (state.completed < numTrials) {
+      final int to = nextCheckpoint(checkpoint, state.completed, numTrials);
+      addTrials(state.sums, this.strategies, config, state.seed, state.completed, to, pool);
+      state = new Checkpoint.State(state.seed, to, state.sums);
+      if (checkpoint != null) {
+        checkpoint.save(run, state);
+      }
+    }
+    double[] res = state.sums;
+    for (int i = 0; i < strategies.size(); ++i) {
+      res[i] /= numTrials;
+    }
+    return res;
+  }
+
+  private static Checkpoint.State resume(
+      Checkpoint checkpoint, String run, long seed, int numSums) {
+    Checkpoint.State state = checkpoint == null ? null : checkpoint.load(run);
+    if (state == null) {
+      return new Checkpoint.State(seed, 0, new double[numSums]);
+    }
+    System.err.println("resuming from trial " + state.completed + " with seed " + state.seed);
+    return state;
+  }
+
+  private static int nextCheckpoint(Checkpoint checkpoint, int completed, int end) {
+    return checkpoint == null ? end : Math.min(end, completed + checkpoint.every);
+  }
+
+  private static String strategyNames(List<? extends Class<?>> strategies) {
+    StringBuilder ret = new StringBuilder();
+    for (Class<?> clazz : strategies) {
+      ret.append(ret.length() == 0 ? "" : ",").append(clazz.getName());
+    }
+    return ret.toString();
+  }
+
+  // Adds the results of trials [fromTrial, toTrial) of the seeded trial sequence to
+  // sums, one trial at a time in trial order, so sums do not depend on how a run is
+  // split into calls.
+  void addTrials(
+      double[] sums,
+      List<Class<? extends Strategy>> strategies,
+      Config config,
+      long seed,
+      int fromTrial,
+      int toTrial,
+      ForkJoinPool pool) {
+    for (double[] ret : runTrials(strategies, config, seed, fromTrial, toTrial, pool)) {
+      for (int i = 0; i < sums.length; ++i) {
+        sums[i] += ret[i];
+      }
+    }
+  }
+
+  // The results of trials [fromTrial, toTrial) of the seeded trial sequence, in
+  // trial order.
+  double[][] runTrials(
+      List<Class<? extends Strategy>> strategies,
+      Config config,
+      long seed,
+      int fromTrial,
+      int toTrial,
+      ForkJoinPool pool) {
+    final SplittableRandom[] streams = trialStreams(seed, fromTrial, toTrial);
+    final double[][] rets = new double[streams.length][];
+    pool.submit(
+            () ->
+                IntStream.range(0, streams.length)
+                    .parallel()
+                    .forEach(k -> rets[k] = runTrial(strategies, config, streams[k])))
+        .join();
+    return rets;
+  }
+
+  // Runs seeded trials in batches of adaptiveBatch until the 95% confidence interval
+  // of every strategy's mean score is no wider than +/- targetHalfWidth, or until
+  // maxTrials trials have run. The stopping point depends only on the seed, not on
+  // the number of threads.
+  public TrialStats adaptiveTrials(
+      Config config, double targetHalfWidth, int maxTrials, long seed, ForkJoinPool pool) {
+    TrialStats stats = new TrialStats(strategies.size());
+    while (stats.count() < maxTrials) {
+      final int from = (int) stats.count();
+      final int to = Math.min(maxTrials, from + adaptiveBatch);
+      for (double[] ret : runTrials(this.strategies, config, seed, from, to, pool)) {
+        stats.add(ret);
+      }
+      if (stats.maxHalfWidth() <= targetHalfWidth) {
+        break;
+      }
+    }
+    return stats;
+  }
+
+  // The random streams of trials [fromTrial, toTrial), split off the master seed in
+  // trial order.
+  static SplittableRandom[] trialStreams(long seed, int fromTrial, int toTrial) {
+    SplittableRandom master = new SplittableRandom(seed);
+    for (int k = 0; k < fromTrial; ++k) {
+      master.split();
+    }
+    SplittableRandom[] streams = new SplittableRandom[toTrial - fromTrial];
+    for (int k = 0; k < streams.length; ++k) {
+      streams[k] = master.split();
+    }
+    return streams;
+  }
+
   public <Strategy_T extends Strategy> double[] withExtraTrials(
       Class<Strategy_T> clazz, int numTrials, Config config) {
     double[] res = new double[strategies.size() + 1];
@@ -100,6 +297,21 @@ public abstract class Tournament<Strategy, Config> {
     return res;
   }
 
+  // Seeded, parallel version of withExtraTrials. Trial k uses the k-th stream of the
+  // seed whatever the extra strategy is, so runs with the same seed and different
+  // extra strategies face common random numbers and can be compared trial by trial.
+  public <Strategy_T extends Strategy> double[] withExtraTrials(
+      Class<Strategy_T> clazz, int numTrials, Config config, long seed, ForkJoinPool pool) {
+    List<Class<? extends Strategy>> withExtraStrategies = new ArrayList<>(strategies);
+    withExtraStrategies.add(clazz);
+    double[] res = new double[strategies.size() + 1];
+    addTrials(res, withExtraStrategies, config, seed, 0, numTrials, pool);
+    for (int i = 0; i < strategies.size() + 1; ++i) {
+      res[i] /= numTrials;
+    }
+    return res;
+  }
+
   public <Strategy_T extends Strategy> double[] withExtraTrial(
       Class<Strategy_T> clazz, Config config) {
     // Initialize students
@@ -117,6 +329,94 @@ public abstract class Tournament<Strategy, Config> {
     return res;
   }
 
+  // Seeded version of withReplacementTrials, saving progress to checkpoint (if not
+  // null). Slot i's trials are trials i * numTrials .. (i + 1) * numTrials - 1 of the
+  // trial sequence.
+  public <Strategy_T extends Strategy> double[] withReplacementTrials(
+      Class<Strategy_T> clazz,
+      int numTrials,
+      Config config,
+      long seed,
+      ForkJoinPool pool,
+      Checkpoint checkpoint) {
+    return withReplacementTrials(clazz, numTrials, config, seed, pool, checkpoint, false);
+  }
+
+  // With commonRandomNumbers, every slot instead replays trials 0 .. numTrials - 1, so
+  // trial k draws the same aptitudes, qualities, synergies and repairs whichever slot
+  // is replaced, and the slots run in parallel. Differences between slots are then
+  // paired comparisons rather than buried in sampling noise.
+  public <Strategy_T extends Strategy> double[] withReplacementTrials(
+      Class<Strategy_T> clazz,
+      int numTrials,
+      Config config,
+      long seed,
+      ForkJoinPool pool,
+      Checkpoint checkpoint,
+      boolean commonRandomNumbers) {
+    final String run =
+        (commonRandomNumbers ? "withReplacementTrials(crn) " : "withReplacementTrials ")
+            + clazz.getName()
+            + " "
+            + numTrials
+            + " "
+            + strategyNames(strategies);
+    final int numSlots = strategies.size();
+    final List<List<Class<? extends Strategy>>> replaced = new ArrayList<>();
+    for (int i = 0; i < numSlots; ++i) {
+      List<Class<? extends Strategy>> withExtraStrategies = new ArrayList<>(strategies);
+      withExtraStrategies.set(i, clazz);
+      replaced.add(withExtraStrategies);
+    }
+
+    // Progress counts trials run per slot with common random numbers, and trials of
+    // the whole sequence otherwise
+    final int total = commonRandomNumbers ? numTrials : numSlots * numTrials;
+    Checkpoint.State state = resume(checkpoint, run, seed, numSlots);
+    while (state.completed < total) {
+      final long runSeed = state.seed;
+      final double[] sums = state.sums;
+      final int from = state.completed;
+      if (commonRandomNumbers) {
+        final int to = nextCheckpoint(checkpoint, from, total);
+        // Each slot continues its own running sum, so the sums do not depend on where
+        // the checkpoints fall
+        final double[][] slotSums = new double[numSlots][numSlots];
+        for (int i = 0; i < numSlots; ++i) {
+          slotSums[i][i] = sums[i];
+        }
+        pool.submit(
+                () ->
+                    IntStream.range(0, numSlots)
+                        .parallel()
+                        .forEach(
+                            i ->
+                                addTrials(
+                                    slotSums[i], replaced.get(i), config, runSeed, from, to, pool)))
+            .join();
+        for (int i = 0; i < numSlots; ++i) {
+          sums[i] = slotSums[i][i];
+        }
+        state = new Checkpoint.State(runSeed, to, sums);
+      } else {
+        final int slot = from / numTrials;
+        final int to = nextCheckpoint(checkpoint, from, (slot + 1) * numTrials);
+        for (double[] ret : runTrials(replaced.get(slot), config, runSeed, from, to, pool)) {
+          sums[slot] += ret[slot];
+        }
+        state = new Checkpoint.State(runSeed, to, sums);
+      }
+      if (checkpoint != null) {
+        checkpoint.save(run, state);
+      }
+    }
+    double[] res = state.sums;
+    for (int i = 0; i < numSlots; ++i) {
+      res[i] /= numTrials;
+    }
+    return res;
+  }
+
   private <Strategy_T extends Strategy> double withReplacementTrials(
       Class<Strategy_T> clazz, int numTrials, Config config, int i) {
     double res = 0;
@@ -154,5 +454,11 @@ public abstract class Tournament<Strategy, Config> {
     return Arrays.stream(runTrial(studentClasses, config)).average().getAsDouble();
   }
 
-  public abstract double[] runTrial(List<Class<? extends Strategy>> strategies, Config config);
+  public double[] runTrial(List<Class<? extends Strategy>> strategies, Config config) {
+    return runTrial(strategies, config, rand);
+  }
+
+  // Runs one trial, taking every random draw the tournament makes from rng.
+  public abstract double[] runTrial(
+      List<Class<? extends Strategy>> strategies, Config config, RandomGenerator rng);
 }
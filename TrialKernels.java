@@ -0,0 +1,46 @@
+// TrialKernels.java: element-wise numeric loops of Admissions.runTrial
+// COS 445 SD1, Spring 2019
+
+public class TrialKernels {
+  // Loads the Vector API kernels when run with -Dadmissions.simd=true (which also
+  // needs --add-modules jdk.incubator.vector) and these scalar loops otherwise. Both
+  // give identical results.
+  static TrialKernels load() {
+    if (Boolean.getBoolean("admissions.simd")) {
+      try {
+        return Class.forName("VectorTrialKernels")
+            .asSubclass(TrialKernels.class)
+            .getDeclaredConstructor()
+            .newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        System.err.println("admissions.simd: Vector API unavailable, using scalar loops: " + e);
+      }
+    }
+    return new TrialKernels();
+  }
+
+  // values[i] *= factor
+  void scale(double[] values, double factor) {
+    for (int i = 0; i < values.length; ++i) {
+      values[i] *= factor;
+    }
+  }
+
+  // values[i] = minuend - values[i]
+  void subtractFrom(double minuend, double[] values) {
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = minuend - values[i];
+    }
+  }
+
+  // Number of i with a[i] + b[i] <= bound
+  int countAtMost(double[] a, double[] b, double bound) {
+    int count = 0;
+    for (int i = 0; i < a.length; ++i) {
+      if (a[i] + b[i] <= bound) {
+        ++count;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,86 @@
+// TrialReport.java: where Admissions trials spend their time, and how congested
+// the matching is, summed over a tournament
+// COS 445 SD1, Spring 2019
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TrialReport {
+  // Phases of Admissions.runTrial, in order. STRATEGIES excludes the VALIDATION of
+  // the strategies' applications, though validation runs inside each strategy call.
+  enum Phase {
+    GENERATION,
+    STRATEGIES,
+    VALIDATION,
+    PREFERENCES,
+    MATCHING,
+    SCORING
+  }
+
+  private final LongAdder trials = new LongAdder();
+  private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+  private final LongAdder proposals = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder tradeUps = new LongAdder();
+  private final LongAdder passes = new LongAdder();
+  private final LongAdder unmatchedStudents = new LongAdder();
+  private final LongAdder unmatchedUniversities = new LongAdder();
+
+  TrialReport() {
+    for (int i = 0; i < phaseNanos.length; ++i) {
+      phaseNanos[i] = new LongAdder();
+    }
+  }
+
+  // Adds one trial; trials may be added from many threads at once
+  void add(long[] nanos, DeferredAcceptance.Counters counters) {
+    trials.increment();
+    for (int i = 0; i < phaseNanos.length; ++i) {
+      phaseNanos[i].add(nanos[i]);
+    }
+    proposals.add(counters.proposals);
+    rejections.add(counters.rejections);
+    tradeUps.add(counters.tradeUps);
+    passes.add(counters.passes);
+    unmatchedStudents.add(counters.unmatchedStudents);
+    unmatchedUniversities.add(counters.unmatchedUniversities);
+  }
+
+  // A metric,total,per_trial table; phases are in milliseconds
+  List<String> summary() {
+    final long n = trials.sum();
+    List<String> lines = new ArrayList<>();
+    lines.add("metric,total,per_trial");
+    lines.add("trials," + n + ",1");
+    for (Phase phase : Phase.values()) {
+      final double ms = phaseNanos[phase.ordinal()].sum() / 1e6;
+      lines.add(String.format(Locale.ROOT, "%s_ms,%.3f,%.6f",
+          phase.name().toLowerCase(Locale.ROOT), ms, n == 0 ? 0 : ms / n));
+    }
+    lines.add(row("proposals", proposals, n));
+    lines.add(row("rejections", rejections, n));
+    lines.add(row("trade_ups", tradeUps, n));
+    lines.add(row("passes", passes, n));
+    lines.add(row("unmatched_students", unmatchedStudents, n));
+    lines.add(row("unmatched_universities", unmatchedUniversities, n));
+    return lines;
+  }
+
+  private static String row(String metric, LongAdder total, long n) {
+    return String.format(Locale.ROOT, "%s,%d,%.3f", metric, total.sum(), n == 0 ? 0 : (double) total.sum() / n);
+  }
+
+  void write(Path path) {
+    try {
+      Files.write(path, summary(), StandardCharsets.UTF_8);
+    } catch (IOException ioe) {
+      throw new RuntimeException(path + ": cannot write report", ioe);
+    }
+  }
+}
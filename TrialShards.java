@@ -0,0 +1,148 @@
+// TrialShards.java: splits a seeded run's trials across worker JVMs and merges them
+// Shared code for all Strategy Design Assignments
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TrialShards {
+  // Marks the line of a worker's output that holds its sums; strategies may print
+  // anything else to stdout.
+  static final String SUMS = "shard-sums=";
+
+  // Runs trials [0, numTrials) of the seeded trial sequence in numShards worker JVMs,
+  // each running mainClass with args plus --worker-trials=FROM:TO, the same JVM
+  // options as this one and -cp of this one. Returns the per-strategy sums, merged in
+  // shard order. A shard that fails, exits without sums or runs past msTimeout (if
+  // positive) is killed and rerun on its own, up to maxAttempts times in total.
+  static double[] run(
+      Class<?> mainClass,
+      List<String> args,
+      int numTrials,
+      int numShards,
+      long msTimeout,
+      int maxAttempts) {
+    double[][] shardSums = new double[numShards][];
+    Process[] processes = new Process[numShards];
+    File[] outputs = new File[numShards];
+    // When each running shard is to be killed, by System.nanoTime(); every shard's
+    // clock starts when it does, however long the others take to be awaited
+    long[] deadlines = new long[numShards];
+    try {
+      for (int attempt = 1; attempt <= maxAttempts; ++attempt) {
+        for (int shard = 0; shard < numShards; ++shard) {
+          if (shardSums[shard] == null) {
+            outputs[shard] = File.createTempFile("shard" + shard + "-", ".out");
+            processes[shard] =
+                start(mainClass, args, from(shard, numTrials, numShards),
+                    from(shard + 1, numTrials, numShards), outputs[shard]);
+            deadlines[shard] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(msTimeout);
+          }
+        }
+        boolean done = true;
+        for (int shard = 0; shard < numShards; ++shard) {
+          if (shardSums[shard] != null) {
+            continue;
+          }
+          shardSums[shard] =
+              await(processes[shard], outputs[shard], msTimeout > 0, deadlines[shard]);
+          outputs[shard].delete();
+          if (shardSums[shard] == null) {
+            System.err.printf("shard %d failed on attempt %d\n", shard, attempt);
+            done = false;
+          }
+        }
+        if (done) {
+          double[] sums = new double[shardSums[0].length];
+          for (double[] partial : shardSums) {
+            for (int i = 0; i < sums.length; ++i) {
+              sums[i] += partial[i];
+            }
+          }
+          return sums;
+        }
+      }
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe);
+    } catch (InterruptedException e) {
+      throw new RuntimeException("shards: interrupt", e);
+    } finally {
+      // However this returns or throws, no worker outlives it
+      for (int shard = 0; shard < numShards; ++shard) {
+        if (processes[shard] != null && processes[shard].isAlive()) {
+          processes[shard].destroyForcibly();
+        }
+        if (outputs[shard] != null) {
+          outputs[shard].delete();
+        }
+      }
+    }
+    throw new RuntimeException("shards: giving up after " + maxAttempts + " attempts");
+  }
+
+  // First trial of shard; shards split the trials as evenly as possible
+  private static int from(int shard, int numTrials, int numShards) {
+    return (int) ((long) numTrials * shard / numShards);
+  }
+
+  private static Process start(
+      Class<?> mainClass, List<String> args, int fromTrial, int toTrial, File output)
+      throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(mainClass.getName());
+    command.addAll(args);
+    command.add("--worker-trials=" + fromTrial + ":" + toTrial);
+    return new ProcessBuilder(command)
+        .redirectOutput(output)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+  }
+
+  // The sums a worker reported, or null if it failed or, if timed, was still running
+  // at deadline (a System.nanoTime() value)
+  private static double[] await(Process process, File output, boolean timed, long deadline)
+      throws IOException, InterruptedException {
+    if (timed) {
+      if (!process.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+        process.destroyForcibly().waitFor();
+        return null;
+      }
+    } else {
+      process.waitFor();
+    }
+    if (process.exitValue() != 0) {
+      return null;
+    }
+    for (String line : Files.readAllLines(output.toPath(), StandardCharsets.UTF_8)) {
+      if (line.startsWith(SUMS)) {
+        String[] values = line.substring(SUMS.length()).split(",");
+        double[] sums = new double[values.length];
+        for (int i = 0; i < values.length; ++i) {
+          sums[i] = Double.parseDouble(values[i]);
+        }
+        return sums;
+      }
+    }
+    return null;
+  }
+
+  // Worker side: reports sums exactly, as hex doubles
+  static void printSums(double[] sums, PrintStream out) {
+    StringBuilder line = new StringBuilder(SUMS);
+    for (int i = 0; i < sums.length; ++i) {
+      line.append(i == 0 ? "" : ",").append(Double.toHexString(sums[i]));
+    }
+    out.println(line);
+  }
+}
@@ -0,0 +1,51 @@
+// TrialStats.java: streaming per-strategy mean and variance of trial scores
+// Shared code for all Strategy Design Assignments
+
+public class TrialStats {
+  // z for a two-sided 95% normal confidence interval
+  public static final double Z95 = 1.959963984540054;
+
+  private long count = 0;
+  private final double[] mean;
+  private final double[] m2; // sum of squared deviations from the mean
+
+  public TrialStats(int numStrategies) {
+    mean = new double[numStrategies];
+    m2 = new double[numStrategies];
+  }
+
+  // Adds one trial's scores (Welford's update)
+  public void add(double[] ret) {
+    ++count;
+    for (int i = 0; i < mean.length; ++i) {
+      final double delta = ret[i] - mean[i];
+      mean[i] += delta / count;
+      m2[i] += delta * (ret[i] - mean[i]);
+    }
+  }
+
+  public long count() {
+    return count;
+  }
+
+  public double[] means() {
+    return mean.clone();
+  }
+
+  public double variance(int i) {
+    return count > 1 ? m2[i] / (count - 1) : Double.POSITIVE_INFINITY;
+  }
+
+  // Half-width of the 95% confidence interval of strategy i's mean score
+  public double halfWidth(int i) {
+    return Z95 * Math.sqrt(variance(i) / count);
+  }
+
+  public double maxHalfWidth() {
+    double ret = 0;
+    for (int i = 0; i < mean.length; ++i) {
+      ret = Math.max(ret, halfWidth(i));
+    }
+    return ret;
+  }
+}
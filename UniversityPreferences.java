@@ -0,0 +1,150 @@
+// UniversityPreferences.java: per-trial university preference lists for Admissions
+// COS 445 SD1, Spring 2019
+
+public class UniversityPreferences {
+  // Rank of a university the student did not apply to (or of being unmatched)
+  public static final int NOT_APPLIED = Integer.MAX_VALUE;
+
+  private static final int INSERTION_SORT_MAX = 16;
+
+  // The applicants to uni are students[start[uni]] .. students[start[uni + 1] - 1], in
+  // increasing order of quality (aptitude + synergy) and then index, so the most
+  // preferred applicant is last. qualities is parallel to students.
+  final int[] start;
+  final int[] students;
+  final double[] qualities;
+  // ranks[e] is the position of the entry's university in student students[e]'s
+  // application list. This is the students' inverse-rank table, stored only for the
+  // (student, university) pairs that exist rather than as a dense N x N table.
+  final int[] ranks;
+  private final int numStudents;
+
+  private UniversityPreferences(
+      int numStudents, int[] start, int[] students, double[] qualities, int[] ranks) {
+    this.numStudents = numStudents;
+    this.start = start;
+    this.students = students;
+    this.qualities = qualities;
+    this.ranks = ranks;
+  }
+
+  public int numStudents() {
+    return numStudents;
+  }
+
+  public int numUniversities() {
+    return start.length - 1;
+  }
+
+  public int numApplicants(int uni) {
+    return start[uni + 1] - start[uni];
+  }
+
+  // Builds every university's preference list from the students' applications in
+  // flat arrays, without allocating anything per application.
+  public static UniversityPreferences build(
+      int numUnis, int[][] stuPrefs, double[] aptitudes, Synergies synergies) {
+    int[] start = new int[numUnis + 1];
+    for (int[] prefs : stuPrefs) {
+      for (int uni : prefs) {
+        ++start[uni + 1];
+      }
+    }
+    for (int uni = 0; uni < numUnis; ++uni) {
+      start[uni + 1] += start[uni];
+    }
+
+    final int numApps = start[numUnis];
+    int[] students = new int[numApps];
+    double[] qualities = new double[numApps];
+    int[] ranks = new int[numApps];
+    int[] fill = new int[numUnis];
+    System.arraycopy(start, 0, fill, 0, numUnis);
+    for (int stu = 0; stu < stuPrefs.length; ++stu) {
+      for (int rank = 0; rank < stuPrefs[stu].length; ++rank) {
+        final int uni = stuPrefs[stu][rank];
+        students[fill[uni]] = stu;
+        ranks[fill[uni]] = rank;
+        qualities[fill[uni]++] = aptitudes[stu] + synergies.get(stu, uni);
+      }
+    }
+
+    int[] stuBuf = new int[numApps];
+    double[] qualBuf = new double[numApps];
+    int[] rankBuf = new int[numApps];
+    int size = 0;
+    for (int uni = 0; uni < numUnis; ++uni) {
+      final int from = start[uni], to = start[uni + 1];
+      sort(students, qualities, ranks, from, to, stuBuf, qualBuf, rankBuf);
+      // A student repeated in an application list only applies once, at their best rank
+      start[uni] = size;
+      for (int i = from; i < to; ++i) {
+        if (i == from || students[i] != students[i - 1]) {
+          students[size] = students[i];
+          ranks[size] = ranks[i];
+          qualities[size++] = qualities[i];
+        } else {
+          ranks[size - 1] = Math.min(ranks[size - 1], ranks[i]);
+        }
+      }
+    }
+    start[numUnis] = size;
+    return new UniversityPreferences(stuPrefs.length, start, students, qualities, ranks);
+  }
+
+  private static boolean less(double qa, int sa, double qb, int sb) {
+    int ret = Double.compare(qa, qb);
+    return (ret == 0) ? sa < sb : ret < 0;
+  }
+
+  // Merge sort of entries [from, to) by (quality, student), using the buffers as
+  // scratch space
+  private static void sort(
+      int[] stus,
+      double[] quals,
+      int[] ranks,
+      int from,
+      int to,
+      int[] stuBuf,
+      double[] qualBuf,
+      int[] rankBuf) {
+    if (to - from <= INSERTION_SORT_MAX) {
+      for (int i = from + 1; i < to; ++i) {
+        final int s = stus[i];
+        final double q = quals[i];
+        final int r = ranks[i];
+        int j = i;
+        for (; j > from && less(q, s, quals[j - 1], stus[j - 1]); --j) {
+          stus[j] = stus[j - 1];
+          quals[j] = quals[j - 1];
+          ranks[j] = ranks[j - 1];
+        }
+        stus[j] = s;
+        quals[j] = q;
+        ranks[j] = r;
+      }
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    sort(stus, quals, ranks, from, mid, stuBuf, qualBuf, rankBuf);
+    sort(stus, quals, ranks, mid, to, stuBuf, qualBuf, rankBuf);
+    if (!less(quals[mid], stus[mid], quals[mid - 1], stus[mid - 1])) {
+      return; // halves are already in order
+    }
+    System.arraycopy(stus, from, stuBuf, from, to - from);
+    System.arraycopy(quals, from, qualBuf, from, to - from);
+    System.arraycopy(ranks, from, rankBuf, from, to - from);
+    int i = from, j = mid;
+    for (int k = from; k < to; ++k) {
+      if (j >= to || (i < mid && !less(qualBuf[j], stuBuf[j], qualBuf[i], stuBuf[i]))) {
+        stus[k] = stuBuf[i];
+        quals[k] = qualBuf[i];
+        ranks[k] = rankBuf[i++];
+      } else {
+        stus[k] = stuBuf[j];
+        quals[k] = qualBuf[j];
+        ranks[k] = rankBuf[j++];
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+// VectorTrialKernels.java: SIMD versions of TrialKernels using the Vector API
+// COS 445 SD1, Spring 2019
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Only loaded through TrialKernels.load(), so the rest of the tournament runs
+// without the incubator module. Lane-wise + and * round exactly like the scalar
+// loops, so results are identical.
+public class VectorTrialKernels extends TrialKernels {
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  @Override
+  void scale(double[] values, double factor) {
+    int i = 0;
+    for (final int bound = SPECIES.loopBound(values.length); i < bound; i += SPECIES.length()) {
+      DoubleVector.fromArray(SPECIES, values, i).mul(factor).intoArray(values, i);
+    }
+    for (; i < values.length; ++i) {
+      values[i] *= factor;
+    }
+  }
+
+  @Override
+  void subtractFrom(double minuend, double[] values) {
+    final DoubleVector minuends = DoubleVector.broadcast(SPECIES, minuend);
+    int i = 0;
+    for (final int bound = SPECIES.loopBound(values.length); i < bound; i += SPECIES.length()) {
+      minuends.sub(DoubleVector.fromArray(SPECIES, values, i)).intoArray(values, i);
+    }
+    for (; i < values.length; ++i) {
+      values[i] = minuend - values[i];
+    }
+  }
+
+  @Override
+  int countAtMost(double[] a, double[] b, double bound) {
+    int count = 0;
+    int i = 0;
+    for (final int end = SPECIES.loopBound(a.length); i < end; i += SPECIES.length()) {
+      count += DoubleVector.fromArray(SPECIES, a, i)
+          .add(DoubleVector.fromArray(SPECIES, b, i))
+          .compare(VectorOperators.LE, bound)
+          .trueCount();
+    }
+    for (; i < a.length; ++i) {
+      if (a[i] + b[i] <= bound) {
+        ++count;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,91 @@
+// AdmissionsBench.java: JMH benchmarks of the admissions engine
+// COS 445 SD1, Spring 2019
+
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Whole trials and the engine's phases on their own, at each room size n. Trials
+// are run in a room of the given strategies repeated until there are n students.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdmissionsBench {
+  @Param({"10", "49", "1000", "10000"})
+  public int n;
+
+  @Param({"holist,synergist,usnews"})
+  public String room;
+
+  private static final double S = 100, T = 100, W = 10;
+
+  private Object admissions;
+  private List<?> strategies;
+  private Object config;
+  private SplittableRandom trialSeeds;
+  private Engine.Trial trial;
+  private Object synergies;
+  private Object preferences;
+  private int[] prefs;
+  private int[] scratchPrefs;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    String[] names = room.split(",");
+    List<String> strategyNames = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      strategyNames.add("Student_" + names[i % names.length]);
+    }
+    admissions = Engine.newAdmissions.invoke(strategyNames);
+    strategies = (List<?>) Engine.strategies.invoke(admissions);
+    config = Engine.newConfig.invoke(S, T, W);
+    trialSeeds = new SplittableRandom(445);
+
+    trial = new Engine.Trial(n, S, T, W, 445);
+    synergies = Engine.matrixSynergies.invoke(trial.synergies);
+    preferences =
+        Engine.buildPreferences.invoke(n, trial.stuPrefs, trial.aptitudes, synergies);
+    prefs = trial.stuPrefs[0];
+    scratchPrefs = new int[prefs.length];
+  }
+
+  @Benchmark
+  public double[] runTrial() throws Throwable {
+    return (double[]) Engine.runTrial.invoke(admissions, strategies, config, trialSeeds.split());
+  }
+
+  @Benchmark
+  public Object buildPreferences() throws Throwable {
+    return Engine.buildPreferences.invoke(n, trial.stuPrefs, trial.aptitudes, synergies);
+  }
+
+  @Benchmark
+  public int[] match() throws Throwable {
+    return (int[]) Engine.match.invoke(preferences);
+  }
+
+  @Benchmark
+  public boolean checkLegalStuPrefs() throws Throwable {
+    // it repairs prefs in place, so check a fresh copy each time
+    System.arraycopy(prefs, 0, scratchPrefs, 0, prefs.length);
+    return (boolean) Engine.checkLegalStuPrefs.invoke(n, scratchPrefs, "bench", 445L);
+  }
+}
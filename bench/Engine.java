@@ -0,0 +1,180 @@
+// Engine.java: method handles into the admissions engine for the JMH benchmarks
+// COS 445 SD1, Spring 2019
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+// The tournament lives in the unnamed package, which a named package cannot import,
+// and JMH refuses benchmarks in the unnamed package. So the benchmarks reach the
+// engine through method handles, looked up once here.
+final class Engine {
+  static final Class<?> ADMISSIONS = load("Admissions");
+  static final Class<?> CONFIG = load("AdmissionsConfig");
+  static final Class<?> STUDENT = load("Student");
+  static final Class<?> SYNERGIES = load("Synergies");
+  static final Class<?> PREFERENCES = load("UniversityPreferences");
+
+  // (List<String>) -> Admissions
+  static final MethodHandle newAdmissions =
+      constructor(ADMISSIONS, MethodType.methodType(void.class, List.class));
+  // (double S, double T, double W) -> AdmissionsConfig
+  static final MethodHandle newConfig =
+      constructor(
+          CONFIG, MethodType.methodType(void.class, double.class, double.class, double.class));
+  // (Admissions) -> List<Class<? extends Student>>
+  static final MethodHandle strategies = getter(load("Tournament"), "strategies", List.class);
+  // (Admissions, List<Class<? extends Student>>, AdmissionsConfig, RandomGenerator) -> double[]
+  static final MethodHandle runTrial =
+      virtual(
+          ADMISSIONS,
+          "runTrial",
+          MethodType.methodType(double[].class, List.class, CONFIG, RandomGenerator.class));
+  // (Class<? extends Student>) -> Student
+  static final MethodHandle newStrategy =
+      statik(load("Tournament"), "newStrategy", MethodType.methodType(Object.class, Class.class));
+  // (Student, int N, double S, double T, double W) -> void
+  static final MethodHandle prepare =
+      virtual(
+          STUDENT,
+          "prepare",
+          MethodType.methodType(void.class, int.class, double.class, double.class, double.class));
+  // (Student, int N, double S, double T, double W, double aptitude, double[] schools,
+  //  double[] synergies) -> int[]
+  static final MethodHandle getApplications =
+      statik(
+          ADMISSIONS,
+          "getApplications",
+          MethodType.methodType(
+              int[].class,
+              STUDENT,
+              int.class,
+              double.class,
+              double.class,
+              double.class,
+              double.class,
+              double[].class,
+              double[].class));
+  // (int max, int[] prefs, String netid, long repairSeed) -> boolean
+  static final MethodHandle checkLegalStuPrefs =
+      statik(
+          ADMISSIONS,
+          "checkLegalStuPrefs",
+          MethodType.methodType(
+              boolean.class, int.class, int[].class, String.class, long.class));
+  // (double[][]) -> Synergies
+  static final MethodHandle matrixSynergies =
+      statik(SYNERGIES, "matrix", MethodType.methodType(SYNERGIES, double[][].class));
+  // (int numUnis, int[][] stuPrefs, double[] aptitudes, Synergies) -> UniversityPreferences
+  static final MethodHandle buildPreferences =
+      statik(
+          PREFERENCES,
+          "build",
+          MethodType.methodType(
+              PREFERENCES, int.class, int[][].class, double[].class, SYNERGIES));
+  // (UniversityPreferences) -> int[]
+  static final MethodHandle match =
+      statik(
+          load("DeferredAcceptance"), "match", MethodType.methodType(int[].class, PREFERENCES));
+
+  // One trial's random inputs, drawn as runTrial draws them, and the applications a
+  // room of holist students would send, which is the most congested common case.
+  static final class Trial {
+    final double[] aptitudes;
+    final double[] schools;
+    final double[][] synergies;
+    final int[][] stuPrefs;
+
+    Trial(int n, double S, double T, double W, long seed) {
+      SplittableRandom rng = new SplittableRandom(seed);
+      aptitudes = new double[n];
+      schools = new double[n];
+      synergies = new double[n][n];
+      for (int i = 0; i < n; ++i) {
+        aptitudes[i] = rng.nextDouble() * S;
+        schools[i] = rng.nextDouble() * T;
+        for (int j = 0; j < n; ++j) {
+          synergies[i][j] = rng.nextDouble() * W;
+        }
+      }
+      Arrays.sort(schools);
+      for (int i = 0; i < n; ++i) {
+        schools[i] = T - schools[i];
+      }
+      stuPrefs = new int[n][];
+      for (int stu = 0; stu < n; ++stu) {
+        stuPrefs[stu] = holist(schools, synergies[stu]);
+      }
+    }
+
+    private static int[] holist(double[] schools, double[] synergies) {
+      Integer[] order = new Integer[schools.length];
+      for (int i = 0; i < order.length; ++i) {
+        order[i] = i;
+      }
+      Arrays.sort(
+          order,
+          (a, b) -> {
+            int ret = Double.compare(schools[b] + synergies[b], schools[a] + synergies[a]);
+            return (ret == 0) ? Integer.compare(a, b) : ret;
+          });
+      int[] ret = new int[10];
+      for (int i = 0; i != 10; ++i) {
+        ret[i] = order[i];
+      }
+      return ret;
+    }
+  }
+
+  private Engine() {}
+
+  private static Class<?> load(String name) {
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException cnfe) {
+      throw new ExceptionInInitializerError(cnfe);
+    }
+  }
+
+  private static MethodHandles.Lookup lookupIn(Class<?> clazz) throws IllegalAccessException {
+    return MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+  }
+
+  private static MethodHandle constructor(Class<?> clazz, MethodType type) {
+    try {
+      return lookupIn(clazz).findConstructor(clazz, type);
+    } catch (ReflectiveOperationException roe) {
+      throw new ExceptionInInitializerError(roe);
+    }
+  }
+
+  private static MethodHandle getter(Class<?> clazz, String name, Class<?> type) {
+    try {
+      return lookupIn(clazz).findGetter(clazz, name, type);
+    } catch (ReflectiveOperationException roe) {
+      throw new ExceptionInInitializerError(roe);
+    }
+  }
+
+  private static MethodHandle virtual(Class<?> clazz, String name, MethodType type) {
+    try {
+      return lookupIn(clazz).findVirtual(clazz, name, type);
+    } catch (ReflectiveOperationException roe) {
+      throw new ExceptionInInitializerError(roe);
+    }
+  }
+
+  private static MethodHandle statik(Class<?> clazz, String name, MethodType type) {
+    try {
+      return lookupIn(clazz).findStatic(clazz, name, type);
+    } catch (ReflectiveOperationException roe) {
+      throw new ExceptionInInitializerError(roe);
+    }
+  }
+}
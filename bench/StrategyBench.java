@@ -0,0 +1,59 @@
+// StrategyBench.java: JMH benchmarks of each bundled strategy's getApplications
+// COS 445 SD1, Spring 2019
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One getApplications call, made the way runTrial makes it, for every bundled
+// strategy and room size n, after the strategy has been prepared once. The
+// simulation strategies are very slow at large n; pick a subset with e.g.
+// make bench BENCH="StrategyBench -p n=10,49".
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrategyBench {
+  @Param({
+    "ASU", "angyman", "holist", "hybrid", "pb3016", "random", "simulation", "sims4",
+    "softlocked", "synergist", "usnews"
+  })
+  public String strategy;
+
+  @Param({"10", "49", "1000", "10000"})
+  public int n;
+
+  private static final double S = 100, T = 100, W = 10;
+
+  private Object student;
+  private Engine.Trial trial;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    student = Engine.newStrategy.invoke(Class.forName("Student_" + strategy));
+    // As runTrial does before a strategy's first call of a tournament
+    Engine.prepare.invoke(student, n, S, T, W);
+    trial = new Engine.Trial(n, S, T, W, 445);
+  }
+
+  @Benchmark
+  public int[] getApplications() throws Throwable {
+    return (int[])
+        Engine.getApplications.invoke(
+            student, n, S, T, W, trial.aptitudes[0], trial.schools, trial.synergies[0]);
+  }
+}